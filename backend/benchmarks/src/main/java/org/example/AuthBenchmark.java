@@ -0,0 +1,50 @@
+package org.example;
+
+import io.jsonwebtoken.Claims;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-request token work: signing a new token at login, validating a token the claims cache
+ * has seen before (every request after the first), and the full signature check a cache miss pays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthBenchmark {
+
+    String token;
+
+    @Setup
+    public void setup() {
+        token = JwtUtil.generateToken("bench-user");
+        JwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return JwtUtil.generateToken("bench-user");
+    }
+
+    @Benchmark
+    public Claims validateToken_cached() {
+        return JwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Claims validateToken_uncached() {
+        return JwtUtil.verify(token);
+    }
+}
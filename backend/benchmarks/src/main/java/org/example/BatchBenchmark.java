@@ -0,0 +1,94 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A group of 10 or 50 bikes booked and then returned by one user with fsync on every append:
+ * one bookBike/returnBike call per bike, as a client of /api/book does, against one applyBatch
+ * for the bookings and one for the returns. The log lives in a temp directory; point
+ * {@code -Djava.io.tmpdir} at the disk to be measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+
+    @Param({"10", "50"})
+    int group;
+
+    Path dir;
+    WriteAheadLog wal;
+    BookingLedger ledger;
+    BikeRentalService service;
+    List<BikeRentalService.BatchOperation> bookings = new ArrayList<>();
+    List<BikeRentalService.BatchOperation> returns = new ArrayList<>();
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("batch-bench");
+        wal = new WriteAheadLog(dir, WriteAheadLog.FsyncPolicy.ALWAYS, 100);
+        ledger = new BookingLedger(dir);
+        service = new BikeRentalService(20, null, ledger);
+        service.start();
+        new Checkpointer(service, wal, dir).recover();
+        bookings.clear();
+        returns.clear();
+        for (int i = 0; i < group; i++) {
+            int id = service.listBike("Tour", "Alpha", "owner", 2024, 100, "555", null).getId();
+            bookings.add(new BikeRentalService.BatchOperation("book", id));
+            returns.add(new BikeRentalService.BatchOperation("return", id));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        service.shutdown();
+        wal.close();
+        ledger.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean oneByOne() {
+        boolean ok = true;
+        for (BikeRentalService.BatchOperation operation : bookings) {
+            ok &= service.bookBike(operation.bikeId(), "tour");
+        }
+        for (BikeRentalService.BatchOperation operation : returns) {
+            ok &= service.returnBike(operation.bikeId(), "tour");
+        }
+        return ok;
+    }
+
+    @Benchmark
+    public boolean batched() {
+        return service.applyBatch(bookings, "tour") == null && service.applyBatch(returns, "tour") == null;
+    }
+}
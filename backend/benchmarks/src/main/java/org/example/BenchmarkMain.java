@@ -0,0 +1,24 @@
+package org.example;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar: JMH's own command line, except that results are written as
+ * JSON by default, to jmh-result-&lt;timestamp&gt;.json, so runs from two releases can be diffed.
+ * Passing -rf or -rff keeps JMH's behaviour.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf") && !jmhArgs.contains("-rff") && !jmhArgs.contains("-h") && !jmhArgs.contains("-l")) {
+            jmhArgs.addAll(List.of("-rf", "json", "-rff",
+                    "jmh-result-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json"));
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,88 @@
+package org.example;
+
+import com.google.gson.Gson;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BikeWebSocketServer.broadcast fan-out: time from handing one change frame to the server until
+ * every one of N in-process clients has received it, over loopback.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BroadcastBenchmark {
+
+    @Param({"1", "10", "100"})
+    int clients;
+
+    BikeRentalService service;
+    BikeWebSocketServer server;
+    List<WebSocketClient> listeners = new ArrayList<>();
+    volatile CountDownLatch received;
+    String message;
+
+    @Setup
+    public void setup() throws Exception {
+        service = new BikeRentalService();
+        service.start();
+        server = new BikeWebSocketServer(new InetSocketAddress("127.0.0.1", 0), service);
+        server.setReuseAddr(true);
+        server.start();
+        while (server.getPort() == 0) {
+            Thread.sleep(10);
+        }
+        URI uri = URI.create("ws://127.0.0.1:" + server.getPort());
+        for (int i = 0; i < clients; i++) {
+            WebSocketClient client = new WebSocketClient(uri) {
+                @Override public void onOpen(ServerHandshake handshake) {}
+                @Override public void onMessage(String message) { received.countDown(); }
+                @Override public void onClose(int code, String reason, boolean remote) {}
+                @Override public void onError(Exception ex) {}
+            };
+            client.connectBlocking();
+            listeners.add(client);
+        }
+        Bike bike = service.listBike("Bench", "Alpha", "owner", 2024, 100, "555", null);
+        // A publisher frame: a JSON array of journal events, here one bikeAdded
+        message = "[{\"seq\":1," + new Gson().toJson(BikeEvent.added(bike)).substring(1) + "]";
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (WebSocketClient client : listeners) {
+            client.closeBlocking();
+        }
+        server.stop(1000);
+        service.shutdown();
+    }
+
+    @Benchmark
+    public void broadcast() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(clients);
+        received = latch;
+        server.broadcast(message);
+        latch.await();
+    }
+}
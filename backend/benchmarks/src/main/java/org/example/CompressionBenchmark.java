@@ -0,0 +1,77 @@
+package org.example;
+
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CPU cost of gzip and deflate on the /api/bikes payload, with photos inline (as they used to be)
+ * and as photo-store references. Bytes on the wire for each encoding are printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    @Param({"100", "2000"})
+    int fleetSize;
+
+    @Param({"inline", "reference"})
+    String photos;
+
+    byte[] payload;
+    BikeRentalService service;
+
+    @Setup
+    public void setup() {
+        service = new BikeRentalService();
+        service.start();
+        Random random = new Random(42);
+        for (int i = 0; i < fleetSize; i++) {
+            // Photo bytes are already compressed, so random bytes are a fair stand-in
+            byte[] photo = new byte[8 * 1024];
+            random.nextBytes(photo);
+            String photoUrl = "inline".equals(photos)
+                    ? "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(photo)
+                    : PhotoStore.URL_PREFIX + HexFormat.of().formatHex(photo, 0, 32);
+            service.listBike("Model " + (i % 20), "location-" + (i % 10), "owner-" + (i % 50),
+                    2015 + i % 10, 100 + i % 400, "555-" + (1000 + i % 9000), photoUrl);
+        }
+        payload = service.getInventorySnapshot().plain();
+        System.out.printf("%n%d bikes, photos %s: identity %,d bytes, gzip %,d bytes, deflate %,d bytes%n",
+                fleetSize, photos, payload.length,
+                HttpCompression.compress(payload, HttpCompression.GZIP).length,
+                HttpCompression.compress(payload, HttpCompression.DEFLATE).length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public byte[] gzip() {
+        return HttpCompression.compress(payload, HttpCompression.GZIP);
+    }
+
+    @Benchmark
+    public byte[] deflate() {
+        return HttpCompression.compress(payload, HttpCompression.DEFLATE);
+    }
+}
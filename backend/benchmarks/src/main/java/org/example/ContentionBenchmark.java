@@ -0,0 +1,156 @@
+package org.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Book-then-return throughput of the per-bike CAS service against the old
+ * service-wide {@code synchronized} implementation, at 1, 8 and 32 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Fleet {
+        @Param({"1024"})
+        int fleetSize;
+
+        BikeRentalService service;
+        SynchronizedRentalService baseline;
+        int firstId;
+
+        // Rebuilt every iteration so the booking history of one iteration does not slow the next
+        @Setup(Level.Iteration)
+        public void setup() {
+            service = new BikeRentalService();
+            service.start();
+            baseline = new SynchronizedRentalService();
+            firstId = service.listBike("Bench", "Alpha", "owner", 2024, 100, "555", null).getId();
+            for (int i = 1; i < fleetSize; i++) {
+                service.listBike("Bench", "Alpha", "owner", 2024, 100, "555", null);
+            }
+            for (int i = 0; i < fleetSize; i++) {
+                baseline.add(firstId + i);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            service.shutdown();
+        }
+
+        int randomBikeId() {
+            return firstId + ThreadLocalRandom.current().nextInt(fleetSize);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Rider {
+        final String userId = "rider-" + Thread.currentThread().threadId();
+    }
+
+    private static boolean cycle(BikeRentalService service, int bikeId, String userId) {
+        return service.bookBike(bikeId, userId) && service.returnBike(bikeId, userId);
+    }
+
+    private static boolean cycle(SynchronizedRentalService service, int bikeId, String userId) {
+        return service.bookBike(bikeId, userId) && service.returnBike(bikeId, userId);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean cas_1(Fleet fleet, Rider rider) {
+        return cycle(fleet.service, fleet.randomBikeId(), rider.userId);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean cas_8(Fleet fleet, Rider rider) {
+        return cycle(fleet.service, fleet.randomBikeId(), rider.userId);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean cas_32(Fleet fleet, Rider rider) {
+        return cycle(fleet.service, fleet.randomBikeId(), rider.userId);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean synchronized_1(Fleet fleet, Rider rider) {
+        return cycle(fleet.baseline, fleet.randomBikeId(), rider.userId);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean synchronized_8(Fleet fleet, Rider rider) {
+        return cycle(fleet.baseline, fleet.randomBikeId(), rider.userId);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean synchronized_32(Fleet fleet, Rider rider) {
+        return cycle(fleet.baseline, fleet.randomBikeId(), rider.userId);
+    }
+
+    /**
+     * The booking path as it was before per-bike CAS: every call takes the one service monitor.
+     * Rentals go to the same kind of ledger as the real service so only the locking differs.
+     */
+    static class SynchronizedRentalService {
+        static class MutableBike {
+            boolean isAvailable = true;
+            String bookedBy;
+            long version;
+        }
+
+        private final Map<Integer, MutableBike> bikeInventory = new ConcurrentHashMap<>();
+        private final BookingLedger ledger = new BookingLedger();
+
+        void add(int bikeId) {
+            bikeInventory.put(bikeId, new MutableBike());
+        }
+
+        synchronized boolean bookBike(int bikeId, String userId) {
+            MutableBike bike = bikeInventory.get(bikeId);
+            if (bike != null && bike.isAvailable) {
+                bike.isAvailable = false;
+                bike.bookedBy = userId;
+                ledger.open(userId, bikeId, ++bike.version, System.currentTimeMillis(), 100);
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean returnBike(int bikeId, String userId) {
+            MutableBike bike = bikeInventory.get(bikeId);
+            if (bike != null && !bike.isAvailable && userId.equals(bike.bookedBy)) {
+                bike.isAvailable = true;
+                bike.bookedBy = null;
+                ledger.close(bikeId, ++bike.version, System.currentTimeMillis());
+                return true;
+            }
+            return false;
+        }
+    }
+}
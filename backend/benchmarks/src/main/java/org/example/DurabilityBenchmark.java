@@ -0,0 +1,152 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the write-ahead log: book-then-return throughput under each fsync policy at 8 threads,
+ * and how long startup takes to rebuild 10^6 logged changes, from the log alone or from a snapshot.
+ * The log lives in a temp directory; point {@code -Djava.io.tmpdir} at the disk to be measured.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DurabilityBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Logged {
+        @Param({"ALWAYS", "GROUP", "INTERVAL"})
+        String policy;
+
+        Path dir;
+        WriteAheadLog wal;
+        BookingLedger ledger;
+        BikeRentalService service;
+        int firstId;
+        int fleetSize = 1024;
+
+        @Setup(Level.Iteration)
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("wal-bench");
+            wal = new WriteAheadLog(dir, WriteAheadLog.FsyncPolicy.valueOf(policy), 100);
+            ledger = new BookingLedger(dir);
+            service = new BikeRentalService(20, null, ledger);
+            service.start();
+            new Checkpointer(service, wal, dir).recover();
+            firstId = service.listBike("Bench", "Alpha", "owner", 2024, 100, "555", null).getId();
+            for (int i = 1; i < fleetSize; i++) {
+                service.listBike("Bench", "Alpha", "owner", 2024, 100, "555", null);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            service.shutdown();
+            wal.close();
+            ledger.close();
+            delete(dir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Rider {
+        final String userId = "rider-" + Thread.currentThread().threadId();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Threads(8)
+    public boolean bookAndReturn(Logged logged, Rider rider) {
+        int bikeId = logged.firstId + ThreadLocalRandom.current().nextInt(logged.fleetSize);
+        return logged.service.bookBike(bikeId, rider.userId) && logged.service.returnBike(bikeId, rider.userId);
+    }
+
+    @State(Scope.Benchmark)
+    public static class History {
+        @Param({"1000000"})
+        int records;
+
+        // "log": every record is replayed; "snapshot": a checkpoint was taken after the last one
+        @Param({"log", "snapshot"})
+        String from;
+
+        Path dir;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("wal-recovery");
+            WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.FsyncPolicy.INTERVAL, 1000);
+            BookingLedger ledger = new BookingLedger(dir);
+            BikeRentalService service = new BikeRentalService(20, null, ledger);
+            service.start();
+            Checkpointer checkpointer = new Checkpointer(service, wal, dir);
+            checkpointer.recover();
+            int bikes = Math.min(10_000, records / 10);
+            int firstId = service.listBike("Bench", "Alpha", "owner", 2024, 100, "555", null).getId();
+            for (int i = 1; i < bikes; i++) {
+                service.listBike("Bench", "Alpha", "owner", 2024, 100, "555", null);
+            }
+            for (int n = bikes; n < records; n += 2) {
+                int bikeId = firstId + (n / 2) % bikes;
+                service.bookBike(bikeId, "rider");
+                service.returnBike(bikeId, "rider");
+            }
+            if ("snapshot".equals(from)) {
+                checkpointer.checkpoint();
+            }
+            service.shutdown();
+            wal.close();
+            ledger.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public BikeRentalService recover(History history) throws IOException {
+        BikeRentalService service;
+        try (BookingLedger ledger = new BookingLedger(history.dir);
+             WriteAheadLog wal = new WriteAheadLog(history.dir, WriteAheadLog.FsyncPolicy.INTERVAL, 1000)) {
+            service = new BikeRentalService(20, null, ledger);
+            service.start();
+            new Checkpointer(service, wal, history.dir).recover();
+        }
+        service.shutdown();
+        return service;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Request latency over real HTTP under each executor mode, with logins and bookings competing:
+ * in "storm" twelve threads log in as fast as they can while four book and return their own bike;
+ * "quiet" runs the same four bookers alone, as the baseline storm's booking latency is read against.
+ * Sample time mode, so the report carries p50/p99 per operation and mode.
+ * A 503 from admission or the password hashing pool counts as a (fast) completed request;
+ * rejections are printed at teardown.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class ExecutorBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"VIRTUAL", "POOL", "GROUPED"})
+        String mode;
+
+        BikeRentalService service;
+        HttpExecutors executors;
+        HttpServer server;
+        HttpClient client;
+        String base;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            service = new BikeRentalService();
+            service.start();
+            service.registerUser("storm", "storm-pass");
+            Map<String, Integer> threads = new LinkedHashMap<>();
+            threads.put(HttpExecutors.AUTH, 2);
+            threads.put(HttpExecutors.RENTAL, 4);
+            threads.put(HttpExecutors.READ, 4);
+            // Measuring executors, not rate limits: lift them well out of the way
+            for (String limited : new String[]{"book", "return", "list-bike", "register"}) {
+                System.setProperty("ratelimit." + limited, "1000000/1000000");
+            }
+            executors = new HttpExecutors(HttpExecutors.Mode.valueOf(mode), threads, 100, 1000, 1);
+            server = Main.createHttpServer(new InetSocketAddress("127.0.0.1", 0), service, null, executors);
+            server.start();
+            base = "http://127.0.0.1:" + server.getAddress().getPort();
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newCachedThreadPool())
+                    .build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            for (HttpExecutors.Lane lane : executors.getLanes()) {
+                System.out.printf("%n%s lane %s: %d accepted, %d rejected%n",
+                        mode, lane.getName(), lane.getAccepted(), lane.getRejected());
+            }
+            System.out.printf("%s password hashing: %d hashed, %d rejected%n",
+                    mode, service.getPasswordHasher().getHashes(), service.getPasswordHasher().getRejected());
+            server.stop(0);
+            executors.shutdown();
+            service.shutdown();
+        }
+
+        int post(String path, String token, String body) throws IOException, InterruptedException {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+            if (token != null) {
+                request.header("Authorization", "Bearer " + token);
+            }
+            return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Renter {
+        String token;
+        String bike;
+
+        @Setup(Level.Trial)
+        public void setup(Server server) {
+            String user = "renter-" + Thread.currentThread().threadId();
+            server.service.registerUser(user, "pass");
+            token = JwtUtil.generateToken(user);
+            int id = server.service.listBike("Bench", "Alpha", "owner", 2024, 100, "555", null).getId();
+            bike = "{\"bikeId\":" + id + "}";
+        }
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(12)
+    public int login(Server server) throws IOException, InterruptedException {
+        return server.post("/api/login", null, "{\"username\":\"storm\",\"password\":\"storm-pass\"}");
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(4)
+    public int bookAndReturn(Server server, Renter renter) throws IOException, InterruptedException {
+        return bookAndReturnOnce(server, renter);
+    }
+
+    @Benchmark
+    @Group("quiet")
+    @GroupThreads(4)
+    public int bookAndReturnAlone(Server server, Renter renter) throws IOException, InterruptedException {
+        return bookAndReturnOnce(server, renter);
+    }
+
+    private static int bookAndReturnOnce(Server server, Renter renter) throws IOException, InterruptedException {
+        server.post("/api/book", renter.token, renter.bike);
+        return server.post("/api/return", renter.token, renter.bike);
+    }
+}
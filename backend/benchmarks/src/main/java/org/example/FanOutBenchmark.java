@@ -0,0 +1,130 @@
+package org.example;
+
+import com.google.gson.Gson;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketAdapter;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.handshake.Handshakedata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CPU time on the broadcasting thread to hand one publisher frame to N connections: per-connection
+ * conn.send(String), which encodes, frames and (with permessage-deflate) compresses for every
+ * connection, against one SharedFrame queued on all of them. The connections are real
+ * WebSocketImpls opened by an in-memory handshake, with no sockets behind them, so 10,000 of them
+ * fit in one process and the time is the server's work alone; queued frames are discarded after
+ * every call. BroadcastBenchmark covers delivery over loopback.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int connections;
+
+    @Param({"false", "true"})
+    boolean deflate;
+
+    // Events in the frame: one is below the deflate threshold, fifty is a busy publish window
+    @Param({"1", "50"})
+    int events;
+
+    List<WebSocketImpl> conns = new ArrayList<>();
+    String frame;
+
+    @Setup
+    public void setup() throws Exception {
+        PerMessageDeflateExtension extension = new PerMessageDeflateExtension();
+        extension.setServerNoContextTakeover(true);
+        extension.setThreshold(SharedFrame.DEFLATE_THRESHOLD);
+        Draft draft = deflate ? new Draft_6455(extension) : new Draft_6455();
+        byte[] handshake = ("GET / HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n"
+                + (deflate ? "Sec-WebSocket-Extensions: permessage-deflate\r\n" : "") + "\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        Listener listener = new Listener();
+        for (int i = 0; i < connections; i++) {
+            WebSocketImpl conn = new WebSocketImpl(listener, List.of(draft));
+            conn.decode(ByteBuffer.wrap(handshake));
+            if (!conn.isOpen() || SharedFrame.deflates(conn) != deflate) {
+                throw new IllegalStateException("Handshake did not open the connection as expected");
+            }
+            conn.outQueue.clear();
+            conns.add(conn);
+        }
+
+        Gson gson = new Gson();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < events; i++) {
+            Bike bike = new Bike(1000 + i, "Trek FX " + i, i % 2 == 0 ? "Downtown" : "Riverside", "owner" + i,
+                    2020 + i % 5, 12.5 + i, "555-01" + i, null);
+            BikeEvent event = BikeEvent.added(bike);
+            event.setSeq(i + 1);
+            json.append(i == 0 ? "" : ",").append(gson.toJson(event));
+        }
+        frame = json.append(']').toString();
+    }
+
+    @TearDown(Level.Invocation)
+    public void drain() {
+        for (WebSocketImpl conn : conns) {
+            conn.outQueue.clear();
+        }
+    }
+
+    @Benchmark
+    public void perConnection() {
+        for (WebSocketImpl conn : conns) {
+            conn.send(frame);
+        }
+    }
+
+    @Benchmark
+    public void shared() {
+        SharedFrame shared = new SharedFrame(frame);
+        for (WebSocketImpl conn : conns) {
+            shared.sendTo(conn);
+        }
+    }
+
+    // Accepts every handshake and ignores everything else; nothing is ever written to a socket
+    static final class Listener extends WebSocketAdapter {
+        @Override public void onWebsocketMessage(WebSocket conn, String message) {}
+        @Override public void onWebsocketMessage(WebSocket conn, ByteBuffer blob) {}
+        @Override public void onWebsocketOpen(WebSocket conn, Handshakedata handshake) {}
+        @Override public void onWebsocketClose(WebSocket ws, int code, String reason, boolean remote) {}
+        @Override public void onWebsocketClosing(WebSocket ws, int code, String reason, boolean remote) {}
+        @Override public void onWebsocketCloseInitiated(WebSocket ws, int code, String reason) {}
+        @Override public void onWebsocketError(WebSocket conn, Exception ex) {}
+        @Override public void onWebsocketPong(WebSocket conn, Framedata f) {}
+        @Override public void onWriteDemand(WebSocket conn) {}
+        @Override public InetSocketAddress getLocalSocketAddress(WebSocket conn) { return null; }
+        @Override public InetSocketAddress getRemoteSocketAddress(WebSocket conn) { return null; }
+    }
+}
@@ -0,0 +1,83 @@
+package org.example;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 10^6 bikes held as the ConcurrentHashMap of Bike objects the inventory used to be, against the
+ * columnar FleetStore. Strings are built per bike, as parsing each listing yields them, from 200
+ * models, 300 locations, 50,000 owners with one contact number each and 1,000 stock photos, and a
+ * fifth of the bikes are booked. Setup prints the heap each one takes per bike; the benchmark is
+ * a lookup by id reading the fields a listing filter would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FleetStoreBenchmark {
+
+    @Param({"map", "columns"})
+    String store;
+
+    private static final int BIKES = 1_000_000;
+    private static final int FIRST_ID = 1001;
+
+    Map<Integer, Bike> map;
+    FleetStore columns;
+    SplittableRandom random = new SplittableRandom(7);
+
+    @Setup
+    public void setup() {
+        long before = usedHeap();
+        if (store.equals("map")) {
+            map = new ConcurrentHashMap<>();
+        } else {
+            columns = new FleetStore();
+        }
+        for (int i = 0; i < BIKES; i++) {
+            int owner = i % 50_000;
+            Bike bike = new Bike(FIRST_ID + i, "Model " + (i % 200), "Location " + (i % 300), "owner" + owner,
+                    2015 + i % 10, 100 + i % 400, "555-" + owner, "/api/photos/" + (i % 1_000) + ".jpg");
+            if (i % 5 == 0) {
+                bike.tryBook("rider" + i % 10_000);
+            }
+            if (map != null) {
+                map.put(bike.getId(), bike);
+            } else {
+                columns.put(bike);
+            }
+        }
+        long used = usedHeap() - before;
+        System.out.printf("%n%s: %.1f MB, %d bytes per bike%n", store, used / 1e6, used / BIKES);
+    }
+
+    @Benchmark
+    public double lookup() {
+        int id = FIRST_ID + random.nextInt(BIKES);
+        Bike bike = map != null ? map.get(id) : columns.get(id);
+        return bike.isAvailable() && bike.getLocation().length() > 9 ? bike.getRentRate() : 0;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,91 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ten nearest available bikes within 2 km of a random point, among 10^5 or 10^6 bikes spread
+ * over a one-degree square (a large metro area), four in five of them available: through the
+ * GeoGrid, against a scan of the whole fleet as the client-side filtering it replaces would do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class GeoBenchmark {
+
+    @Param({"100000", "1000000"})
+    int bikes;
+
+    private static final double LAT = 52.0;
+    private static final double LON = 13.0;
+    private static final double RADIUS = 2_000;
+    private static final int LIMIT = 10;
+
+    Bike[] fleet;
+    GeoGrid grid;
+    SplittableRandom random = new SplittableRandom(7);
+
+    @Setup
+    public void setup() {
+        fleet = new Bike[bikes];
+        grid = new GeoGrid(0.01);
+        SplittableRandom r = new SplittableRandom(42);
+        for (int id = 0; id < bikes; id++) {
+            Bike bike = new Bike(id, "Bike " + id, "Metro", "owner", 2022, 10, null, null,
+                    LAT + r.nextDouble(), LON + r.nextDouble());
+            if (r.nextInt(5) == 0) {
+                bike.tryBook("rider");
+            } else {
+                grid.add(bike);
+            }
+            fleet[id] = bike;
+        }
+    }
+
+    @Benchmark
+    public List<GeoGrid.Hit> grid() {
+        double lat = LAT + random.nextDouble();
+        double lon = LON + random.nextDouble();
+        return grid.nearest(lat, lon, RADIUS, LIMIT, id -> fleet[id], Bike::isAvailable);
+    }
+
+    @Benchmark
+    public List<GeoGrid.Hit> scan() {
+        double lat = LAT + random.nextDouble();
+        double lon = LON + random.nextDouble();
+        PriorityQueue<GeoGrid.Hit> best = new PriorityQueue<>(Comparator.comparingDouble(GeoGrid.Hit::distance).reversed());
+        for (Bike bike : fleet) {
+            if (!bike.isAvailable()) {
+                continue;
+            }
+            double d = GeoGrid.distance(lat, lon, bike.getLatitude(), bike.getLongitude());
+            if (d <= RADIUS) {
+                best.add(new GeoGrid.Hit(bike, d));
+                if (best.size() > LIMIT) {
+                    best.poll();
+                }
+            }
+        }
+        List<GeoGrid.Hit> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(GeoGrid.Hit::distance));
+        return result;
+    }
+}
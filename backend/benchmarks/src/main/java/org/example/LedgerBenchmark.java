@@ -0,0 +1,81 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Open-then-close cost of the booking ledger on top of an existing history of 0 to 5 million
+ * rentals, kept on disk as the server does. Setup prints the heap in use once the history is
+ * written, which should grow by the id lists only (two ints per rental).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LedgerBenchmark {
+
+    @Param({"0", "1000000", "5000000"})
+    int history;
+
+    private static final int BIKES = 10_000;
+    private static final int USERS = 1_000;
+
+    Path dir;
+    BookingLedger ledger;
+    long[] versions = new long[BIKES];
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("ledger-bench");
+        ledger = new BookingLedger(dir);
+        for (int n = 0; n < history; n++) {
+            cycle(n);
+        }
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf("%n%d rentals: %.1f MB heap in use%n", history, (rt.totalMemory() - rt.freeMemory()) / 1e6);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    private void cycle(int n) {
+        int bike = n % BIKES;
+        long now = 1_700_000_000_000L + n * 1000L;
+        ledger.open("user-" + (n % USERS), 1000 + bike, ++versions[bike], now, 250);
+        ledger.close(1000 + bike, ++versions[bike], now + 3_600_000);
+    }
+
+    @Benchmark
+    public int openAndClose() {
+        cycle(next++);
+        return next;
+    }
+}
@@ -0,0 +1,450 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+/**
+ * End-to-end load against the real server, over HTTP and WebSocket on one machine.
+ * <p>
+ * Starts {@link Main} in-process (ports 8080/8081, data in a temp directory, rate limits lifted)
+ * unless --target is given. Registers and logs in the synthetic users, has each list a few bikes,
+ * connects the WebSocket listeners, then runs this mix in a closed loop per user: list (a page of
+ * available bikes) 50%, book or return 40% (a user holds one bike at a time, so they alternate),
+ * list-bike 5%, remove one of the user's own bikes 5%.
+ * <p>
+ * Reports throughput and p50/p90/p99/p999 latency per endpoint, with response codes, and per
+ * listener the lag from sending a successful mutation to receiving its broadcast event.
+ * <pre>
+ * java -cp target/benchmarks.jar org.example.LoadGenerator [--users 50] [--listeners 100]
+ *     [--duration 60] [--warmup 10] [--think-ms 0] [--bikes-per-user 2]
+ *     [--target http://host:8080 --ws ws://host:8081] [--verbose]
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private static final String[] ENDPOINTS = {"list", "book", "return", "list-bike", "remove"};
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final Gson gson = new Gson();
+    private final String http;
+    private final String ws;
+    private final long thinkMillis;
+    private final Map<String, Endpoint> endpoints = new TreeMap<>();
+    // Send times of successful mutations, by "<event type>:<bike id>", matched to broadcast receipts
+    private final Map<String, List<Long>> sent = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private final LongAdder errors = new LongAdder();
+    private volatile int highestId = 1000;
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    private LoadGenerator(String http, String ws, long thinkMillis) {
+        this.http = http;
+        this.ws = ws;
+        this.thinkMillis = thinkMillis;
+        for (String name : ENDPOINTS) {
+            endpoints.put(name, new Endpoint());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "50"));
+        int listenerCount = Integer.parseInt(options.getOrDefault("listeners", "100"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int bikesPerUser = Integer.parseInt(options.getOrDefault("bikes-per-user", "2"));
+        PrintStream report = System.out;
+
+        String http = options.get("target");
+        String ws = options.get("ws");
+        if (http == null) {
+            System.setProperty("wal.dir", Files.createTempDirectory("load-data").toString());
+            System.setProperty("photo.dir", Files.createTempDirectory("load-photos").toString());
+            for (String limited : new String[]{"book", "return", "list-bike", "register"}) {
+                System.getProperties().putIfAbsent("ratelimit." + limited, "1000000/1000000");
+            }
+            if (!options.containsKey("verbose")) {
+                // The server logs every registration and connection; keep the report readable
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            }
+            Main.main(new String[0]);
+            http = "http://127.0.0.1:8080";
+            ws = "ws://127.0.0.1:8081";
+        } else if (ws == null) {
+            ws = http.replaceFirst("^http", "ws").replaceFirst(":\\d+$", "") + ":8081";
+        }
+
+        LoadGenerator generator = new LoadGenerator(http, ws, Long.parseLong(options.getOrDefault("think-ms", "0")));
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<User> all = new ArrayList<>();
+        try (ExecutorService setup = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                User user = new User("load-" + run + "-" + i);
+                all.add(user);
+                setup.submit(() -> generator.signUp(user, bikesPerUser));
+            }
+        }
+        all.removeIf(user -> user.token == null);
+        for (int i = 0; i < listenerCount; i++) {
+            Listener listener = generator.new Listener(URI.create(ws));
+            listener.connectBlocking(10, TimeUnit.SECONDS);
+            generator.listeners.add(listener);
+        }
+        report.printf("%d users signed up, %d listeners connected; warming up for %ds, measuring for %ds%n",
+                all.size(), generator.listeners.size(), warmup, duration);
+
+        ExecutorService load = Executors.newVirtualThreadPerTaskExecutor();
+        for (User user : all) {
+            load.submit(() -> generator.drive(user));
+        }
+        Thread.sleep(warmup * 1000L);
+        generator.recording = true;
+        long start = System.nanoTime();
+        Thread.sleep(duration * 1000L);
+        generator.recording = false;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        generator.running = false;
+        load.shutdown();
+        load.awaitTermination(30, TimeUnit.SECONDS);
+        Thread.sleep(500); // let the last broadcasts arrive
+
+        generator.report(report, seconds);
+        for (Listener listener : generator.listeners) {
+            listener.close();
+        }
+        System.exit(0);
+    }
+
+    private void signUp(User user, int bikesPerUser) {
+        try {
+            String credentials = gson.toJson(Map.of("username", user.name, "password", "load-pass"));
+            postPatiently("/api/register", credentials);
+            HttpResponse<String> login = postPatiently("/api/login", credentials);
+            if (login.statusCode() != 200) {
+                System.err.println("Login failed for " + user.name + ": " + login.statusCode());
+                return;
+            }
+            user.token = JsonParser.parseString(login.body()).getAsJsonObject().get("token").getAsString();
+            for (int i = 0; i < bikesPerUser; i++) {
+                listBike(user);
+            }
+        } catch (Exception e) {
+            System.err.println("Could not sign up " + user.name + ": " + e);
+        }
+    }
+
+    private void drive(User user) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            try {
+                int roll = random.nextInt(100);
+                if (roll < 50 || user.available.length == 0) {
+                    list(user);
+                } else if (roll < 90) {
+                    // A user holds at most one bike, so book and return alternate
+                    if (user.booked != null) {
+                        returnBike(user);
+                    } else {
+                        book(user, user.available[random.nextInt(user.available.length)]);
+                    }
+                } else if (roll < 95) {
+                    listBike(user);
+                } else {
+                    remove(user);
+                }
+                if (thinkMillis > 0) {
+                    Thread.sleep(thinkMillis);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (recording) {
+                    errors.increment();
+                }
+            }
+        }
+    }
+
+    private void list(User user) throws Exception {
+        long startNanos = System.nanoTime();
+        HttpResponse<String> response = get("/api/bikes?available=true&fields=id&limit=50&after="
+                + ThreadLocalRandom.current().nextInt(highestId));
+        record("list", startNanos, response.statusCode());
+        if (response.statusCode() == 200) {
+            JsonElement[] bikes = gson.fromJson(response.body(), JsonElement[].class);
+            if (bikes.length > 0) {
+                user.available = Arrays.stream(bikes).mapToInt(b -> b.getAsJsonObject().get("id").getAsInt()).toArray();
+            }
+        }
+    }
+
+    private void book(User user, int bikeId) throws Exception {
+        long startNanos = System.nanoTime();
+        HttpResponse<String> response = post("/api/book", user.token, "{\"bikeId\":" + bikeId + "}");
+        record("book", startNanos, response.statusCode());
+        if (response.statusCode() == 200) {
+            user.booked = bikeId;
+            sent(BikeEvent.BIKE_BOOKED, bikeId, startNanos);
+        }
+    }
+
+    private void returnBike(User user) throws Exception {
+        int bikeId = user.booked;
+        long startNanos = System.nanoTime();
+        HttpResponse<String> response = post("/api/return", user.token, "{\"bikeId\":" + bikeId + "}");
+        record("return", startNanos, response.statusCode());
+        if (response.statusCode() != 429 && response.statusCode() != 503) {
+            user.booked = null;
+        }
+        if (response.statusCode() == 200) {
+            sent(BikeEvent.BIKE_RETURNED, bikeId, startNanos);
+        }
+    }
+
+    private void listBike(User user) throws Exception {
+        long startNanos = System.nanoTime();
+        HttpResponse<String> response = post("/api/list-bike", user.token, gson.toJson(Map.of(
+                "model", "Load " + ThreadLocalRandom.current().nextInt(20),
+                "location", "location-" + ThreadLocalRandom.current().nextInt(10),
+                "contactNumber", "555-0100",
+                "modelYear", 2024,
+                "rentRate", 100.0)));
+        record("list-bike", startNanos, response.statusCode());
+        if (response.statusCode() == 201) {
+            int id = JsonParser.parseString(response.body()).getAsJsonObject().get("id").getAsInt();
+            synchronized (user.owned) {
+                user.owned.add(id);
+            }
+            highestId = Math.max(highestId, id); // racy, but only steers which page is listed
+            sent(BikeEvent.BIKE_ADDED, id, startNanos);
+        }
+    }
+
+    private void remove(User user) throws Exception {
+        Integer bikeId;
+        synchronized (user.owned) {
+            if (user.owned.isEmpty()) {
+                bikeId = null;
+            } else {
+                bikeId = user.owned.remove(ThreadLocalRandom.current().nextInt(user.owned.size()));
+            }
+        }
+        if (bikeId == null) {
+            listBike(user);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        HttpResponse<String> response = post("/api/remove-bike", user.token, "{\"bikeId\":" + bikeId + "}");
+        record("remove", startNanos, response.statusCode());
+        if (response.statusCode() == 200) {
+            sent(BikeEvent.BIKE_REMOVED, bikeId, startNanos);
+        } else {
+            synchronized (user.owned) {
+                user.owned.add(bikeId); // booked right now; try again later
+            }
+        }
+    }
+
+    // Sign-up is not measured: wait out rate limits and a busy password hasher
+    private HttpResponse<String> postPatiently(String path, String body) throws Exception {
+        while (true) {
+            HttpResponse<String> response = post(path, null, body);
+            if (response.statusCode() != 429 && response.statusCode() != 503) {
+                return response;
+            }
+            Thread.sleep(1000 * response.headers().firstValueAsLong("Retry-After").orElse(1));
+        }
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(http + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(http + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void record(String endpoint, long startNanos, int status) {
+        if (recording) {
+            endpoints.get(endpoint).record(System.nanoTime() - startNanos, status);
+        }
+    }
+
+    private void sent(String type, int bikeId, long startNanos) {
+        List<Long> times = sent.computeIfAbsent(type + ":" + bikeId, k -> new ArrayList<>());
+        synchronized (times) {
+            times.add(startNanos);
+        }
+    }
+
+    private void report(PrintStream out, double seconds) {
+        long total = endpoints.values().stream().mapToLong(e -> e.size).sum();
+        out.printf("%nThroughput: %.0f requests/s over %.1fs%n%n", total / seconds, seconds);
+        out.printf("%-10s %9s %9s %9s %9s %9s %9s  %s%n", "endpoint", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "responses");
+        endpoints.forEach((name, endpoint) -> {
+            long[] sorted = endpoint.sorted();
+            out.printf("%-10s %9d %9.0f %9.2f %9.2f %9.2f %9.2f  %s%n", name, sorted.length, sorted.length / seconds,
+                    millis(sorted, 0.50), millis(sorted, 0.90), millis(sorted, 0.99), millis(sorted, 0.999),
+                    endpoint.statuses);
+        });
+        if (errors.sum() > 0) {
+            out.printf("%d requests failed without a response%n", errors.sum());
+        }
+
+        out.printf("%nBroadcast lag, mutation sent to event received, per listener:%n");
+        out.printf("%-10s %9s %9s %9s %9s %9s %9s%n", "listener", "events", "matched", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        List<Long> everyone = new ArrayList<>();
+        for (int i = 0; i < listeners.size(); i++) {
+            Listener listener = listeners.get(i);
+            long[] lags = listener.lags();
+            Arrays.stream(lags).forEach(everyone::add);
+            out.printf("%-10s %9d %9d %9.2f %9.2f %9.2f %9.2f%n", "#" + i, listener.receipts.size(), lags.length,
+                    millis(lags, 0.50), millis(lags, 0.99), millis(lags, 0.999), millis(lags, 1.0));
+        }
+        long[] all = everyone.stream().mapToLong(Long::longValue).sorted().toArray();
+        out.printf("%-10s %9s %9d %9.2f %9.2f %9.2f %9.2f%n", "all", "", all.length,
+                millis(all, 0.50), millis(all, 0.99), millis(all, 0.999), millis(all, 1.0));
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            String name = args[i].substring(2);
+            boolean flag = i + 1 == args.length || args[i + 1].startsWith("--");
+            options.put(name, flag ? "true" : args[++i]);
+        }
+        return options;
+    }
+
+    private static final class User {
+        final String name;
+        volatile String token;
+        final List<Integer> owned = new ArrayList<>();
+        int[] available = new int[0];
+        Integer booked;
+
+        User(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Endpoint {
+        private long[] latencies = new long[1024];
+        private int size;
+        final Map<Integer, LongAdder> statuses = new ConcurrentSkipListMap<>();
+
+        synchronized void record(long nanos, int status) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private record Receipt(String key, long nanos) {}
+
+    private final class Listener extends WebSocketClient {
+        final List<Receipt> receipts = new ArrayList<>();
+
+        Listener(URI uri) {
+            super(uri);
+        }
+
+        @Override public void onOpen(ServerHandshake handshake) {}
+        @Override public void onClose(int code, String reason, boolean remote) {}
+        @Override public void onError(Exception ex) {}
+
+        @Override
+        public void onMessage(String message) {
+            long now = System.nanoTime();
+            if (!recording) {
+                return;
+            }
+            JsonElement frame = JsonParser.parseString(message);
+            if (!frame.isJsonArray()) {
+                return; // a snapshot
+            }
+            synchronized (receipts) {
+                for (JsonElement element : frame.getAsJsonArray()) {
+                    JsonObject event = element.getAsJsonObject();
+                    JsonElement id = event.has("bikeId") ? event.get("bikeId") : event.getAsJsonObject("bike").get("id");
+                    receipts.add(new Receipt(event.get("type").getAsString() + ":" + id.getAsInt(), now));
+                }
+            }
+        }
+
+        // For each event, the time since the latest matching mutation sent before it arrived
+        long[] lags() {
+            List<Long> lags = new ArrayList<>();
+            synchronized (receipts) {
+                for (Receipt receipt : receipts) {
+                    List<Long> times = sent.get(receipt.key());
+                    if (times == null) {
+                        continue;
+                    }
+                    long latest = Long.MIN_VALUE;
+                    synchronized (times) {
+                        for (long t : times) {
+                            if (t <= receipt.nanos() && t > latest) {
+                                latest = t;
+                            }
+                        }
+                    }
+                    if (latest != Long.MIN_VALUE) {
+                        lags.add(receipt.nanos() - latest);
+                    }
+                }
+            }
+            return lags.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reservation checks against one location of 1,000 bikes holding 10,000 to 100,000 future
+ * reservations, back to back one hour each: a conflict check for a single bike, and a page of
+ * bikes free for a window in the middle of the schedule. Both should stay flat as the number of
+ * reservations grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ReservationBenchmark {
+
+    @Param({"10000", "100000"})
+    int reservations;
+
+    private static final int BIKES = 1_000;
+    private static final long HOUR = 3_600_000;
+
+    BikeRentalService service;
+    int firstId;
+    long base;
+    long middle;
+
+    @Setup
+    public void setup() {
+        service = new BikeRentalService();
+        service.start();
+        for (int i = 0; i < BIKES; i++) {
+            Bike bike = service.listBike("Bike " + i, "Central", "owner", 2022, 10, null, null);
+            if (i == 0) {
+                firstId = bike.getId();
+            }
+        }
+        base = System.currentTimeMillis() + 24 * HOUR;
+        int perBike = reservations / BIKES;
+        for (int i = 0; i < BIKES; i++) {
+            // Every other bike leaves the middle hour open, so the free query has something to find
+            for (int slot = 0; slot < perBike; slot++) {
+                if (i % 2 == 1 && slot == perBike / 2) {
+                    continue;
+                }
+                long start = base + slot * HOUR;
+                service.reserveBike(firstId + i, "user" + (slot % 100), start, start + HOUR);
+            }
+        }
+        middle = base + (perBike / 2) * HOUR;
+    }
+
+    @Benchmark
+    public boolean conflictCheck() {
+        return service.getReservationBook().isFree(firstId + 1, middle, middle + HOUR);
+    }
+
+    @Benchmark
+    public List<Bike> freeAtLocation() {
+        return service.getFreeBikes("Central", middle, middle + HOUR, 0, 100);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example;
+
+import com.google.gson.Gson;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Gson encoding of getAllBikes(), as the listing did on every request before it was cached,
+ * with 8 KB photos inline as data URLs, as photo-store references, or with no photo at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"100", "2000"})
+    int fleetSize;
+
+    @Param({"none", "inline", "reference"})
+    String photos;
+
+    BikeRentalService service;
+    List<Bike> bikes;
+    final Gson gson = new Gson();
+
+    @Setup
+    public void setup() {
+        service = new BikeRentalService();
+        service.start();
+        Random random = new Random(42);
+        for (int i = 0; i < fleetSize; i++) {
+            byte[] photo = new byte[8 * 1024];
+            random.nextBytes(photo);
+            String photoUrl = switch (photos) {
+                case "inline" -> "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(photo);
+                case "reference" -> PhotoStore.URL_PREFIX + HexFormat.of().formatHex(photo, 0, 32);
+                default -> null;
+            };
+            service.listBike("Model " + (i % 20), "location-" + (i % 10), "owner-" + (i % 50),
+                    2015 + i % 10, 100 + i % 400, "555-" + (1000 + i % 9000), photoUrl);
+        }
+        bikes = service.getAllBikes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(bikes);
+    }
+
+    @Benchmark
+    public String getAllBikesToJson() {
+        return gson.toJson(service.getAllBikes());
+    }
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import io.jsonwebtoken.Claims;
+import java.io.IOException;
+import java.util.Map;
+
+// Authenticates requests to the protected contexts before their handler runs. A valid bearer
+// token leaves its subject on the exchange (see principal); anything else gets a 401 here.
+// Preflight OPTIONS requests carry no token and pass straight through.
+public class AuthFilter extends Filter {
+
+    private static final String PRINCIPAL = "auth.principal";
+
+    private final Gson gson = new Gson();
+
+    // The authenticated username, for handlers behind this filter
+    public static String principal(HttpExchange exchange) {
+        return (String) exchange.getAttribute(PRINCIPAL);
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if ("OPTIONS".equals(exchange.getRequestMethod())) {
+            chain.doFilter(exchange);
+            return;
+        }
+
+        String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            reject(exchange, "Missing or invalid auth token.");
+            return;
+        }
+        Claims claims = JwtUtil.validateToken(authHeader.substring(7));
+        if (claims == null) {
+            reject(exchange, "Invalid or expired token.");
+            return;
+        }
+
+        exchange.setAttribute(PRINCIPAL, claims.getSubject());
+        chain.doFilter(exchange);
+    }
+
+    @Override
+    public String description() {
+        return "Bearer token authentication";
+    }
+
+    private void reject(HttpExchange exchange, String message) throws IOException {
+        try {
+            HandlerUtils.setCorsHeaders(exchange);
+            HandlerUtils.sendJsonResponse(exchange, 401, gson.toJson(Map.of("success", false, "message", message)));
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// POST /api/batch {"operations": [{"action": "book", "bikeId": 1042}, {"action": "return", ...}]}
+// Books and returns several bikes in one request, all or nothing; 409 names the operation that
+// could not be done, and then no bike was changed. See BikeRentalService.applyBatch.
+public class BatchHandler implements HttpHandler {
+
+    static final int MAX_OPERATIONS = 100;
+
+    private final BikeRentalService bikeService;
+    private final Gson gson = new Gson();
+
+    public BatchHandler(BikeRentalService bikeService) {
+        this.bikeService = bikeService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                HandlerUtils.handleOptionsRequest(exchange);
+                return;
+            }
+            HandlerUtils.setCorsHeaders(exchange);
+
+            if ("POST".equals(exchange.getRequestMethod())) {
+                String username = AuthFilter.principal(exchange);
+
+                InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), "utf-8");
+                Map<String, Object> requestBody = gson.fromJson(isr, Map.class);
+
+                String result;
+                try {
+                    result = bikeService.applyBatch(operations(requestBody), username);
+                } catch (IllegalArgumentException e) {
+                    HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", e.getMessage())));
+                    return;
+                }
+                if (result == null) {
+                    HandlerUtils.sendJsonResponse(exchange, 200, gson.toJson(Map.of("success", true, "message", "All operations applied.")));
+                } else {
+                    HandlerUtils.sendJsonResponse(exchange, 409, gson.toJson(Map.of("success", false, "message", result)));
+                }
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        } catch (Exception e) {
+            HandlerUtils.sendJsonResponse(exchange, 500, gson.toJson(Map.of("success", false, "message", "Error processing request: " + e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static List<BikeRentalService.BatchOperation> operations(Map<String, Object> requestBody) {
+        if (requestBody == null || !(requestBody.get("operations") instanceof List<?> list) || list.isEmpty()) {
+            throw new IllegalArgumentException("operations must be a non-empty list.");
+        }
+        if (list.size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("A batch may hold at most " + MAX_OPERATIONS + " operations.");
+        }
+        List<BikeRentalService.BatchOperation> operations = new ArrayList<>(list.size());
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?> operation) || !(operation.get("action") instanceof String action)
+                    || !(operation.get("bikeId") instanceof Double bikeId)) {
+                throw new IllegalArgumentException("Each operation needs an action and a bikeId.");
+            }
+            operations.add(new BikeRentalService.BatchOperation(action, bikeId.intValue()));
+        }
+        return operations;
+    }
+}
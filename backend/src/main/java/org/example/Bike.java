@@ -1,42 +1,195 @@
 package org.example;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+@JsonAdapter(Bike.Serializer.class)
 public class Bike {
-    private int id;
-    private String model;
-    private String location;
-    private boolean isAvailable;
-    private String bookedBy;
-    private String owner;
-    private int modelYear;
-    private double rentRate;
-    private String contactNumber;
-    private String photoUrl;
+    public static final int AVAILABLE = 0;
+    public static final int BOOKED = 1;
+    public static final int REMOVED = 2;
+
+    // The mutable part of a bike. Never changed in place, a transition swaps in a new State with CAS.
+    public record State(int status, String bookedBy, long version) {}
+
+    // A bike made with the public constructor holds its own fields, until FleetStore copies them
+    // into its columns; a bike read back from the store is a FleetStore row overriding the getters.
+    private final int id;
+    private final String model;
+    private final String location;
+    private final AtomicReference<State> state;
+    private final String owner;
+    private final int modelYear;
+    private final double rentRate;
+    private final String contactNumber;
+    private final String photoUrl;
+    // Optional; NaN when the bike was listed without one
+    private final double latitude;
+    private final double longitude;
 
     public Bike(int id, String model, String location, String owner,
                 int modelYear, double rentRate, String contactNumber, String photoUrl) {
+        this(id, model, location, owner, modelYear, rentRate, contactNumber, photoUrl, Double.NaN, Double.NaN);
+    }
+
+    public Bike(int id, String model, String location, String owner, int modelYear, double rentRate,
+                String contactNumber, String photoUrl, double latitude, double longitude) {
         this.id = id;
         this.model = model;
         this.location = location;
         this.owner = owner;
-        this.isAvailable = true;
-        this.bookedBy = null;
+        this.state = new AtomicReference<>(new State(AVAILABLE, null, 0));
 
         this.modelYear = modelYear;
         this.rentRate = rentRate;
         this.contactNumber = contactNumber;
         this.photoUrl = photoUrl;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    // For FleetStore rows, which keep nothing here but the id
+    Bike(int id) {
+        this.id = id;
+        this.model = null;
+        this.location = null;
+        this.owner = null;
+        this.state = null;
+        this.modelYear = 0;
+        this.rentRate = 0;
+        this.contactNumber = null;
+        this.photoUrl = null;
+        this.latitude = Double.NaN;
+        this.longitude = Double.NaN;
     }
 
     public int getId() { return id; }
     public String getModel() { return model; }
     public String getLocation() { return location; }
-    public boolean isAvailable() { return isAvailable; }
-    public String getBookedBy() { return bookedBy; }
+    public boolean isAvailable() { return getState().status() == AVAILABLE; }
+    public String getBookedBy() { return getState().bookedBy(); }
     public String getOwner() { return owner; }
     public int getModelYear() { return modelYear; }
     public double getRentRate() { return rentRate; }
     public String getContactNumber() { return contactNumber; }
     public String getPhotoUrl() { return photoUrl; }
-    public void setAvailable(boolean available) { isAvailable = available; }
-    public void setBookedBy(String bookedBy) { this.bookedBy = bookedBy; }
-}
\ No newline at end of file
+    public long getVersion() { return getState().version(); }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public boolean hasPosition() { return !Double.isNaN(getLatitude()); }
+    State getState() { return state.get(); }
+
+    // Identity CAS on the bike's own state; a FleetStore row compares encoded values instead,
+    // which comes to the same thing as every transition raises the version
+    boolean compareAndSetState(State expected, State next) {
+        return state.compareAndSet(expected, next);
+    }
+
+    // --- STATE TRANSITIONS ---
+    // Each one only competes with other requests for this same bike.
+
+    // Returns the new state, or null if the bike was not available.
+    public State tryBook(String userId) {
+        while (true) {
+            State current = getState();
+            if (current.status() != AVAILABLE) {
+                return null;
+            }
+            State next = new State(BOOKED, userId, current.version() + 1);
+            if (compareAndSetState(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    // Returns the new state, or null if the bike is not booked by this user.
+    public State tryReturn(String userId) {
+        while (true) {
+            State current = getState();
+            if (current.status() != BOOKED || !userId.equals(current.bookedBy())) {
+                return null;
+            }
+            State next = new State(AVAILABLE, null, current.version() + 1);
+            if (compareAndSetState(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    // Returns the state the bike was in; the bike was removed only if that state is AVAILABLE.
+    public State tryRemove() {
+        while (true) {
+            State current = getState();
+            if (current.status() != AVAILABLE) {
+                return current;
+            }
+            if (compareAndSetState(current, new State(REMOVED, null, current.version() + 1))) {
+                return current;
+            }
+        }
+    }
+
+    // Recovery only: takes a logged or checkpointed state unless the bike already has a newer one,
+    // so records can be replayed in any order and more than once.
+    void restore(State restored) {
+        while (true) {
+            State current = getState();
+            if (restored.version() <= current.version() || compareAndSetState(current, restored)) {
+                return;
+            }
+        }
+    }
+
+    // Writes the same JSON the old reflective Gson output did, plus the position of bikes that have
+    // one, from one consistent read of the state.
+    static class Serializer extends TypeAdapter<Bike> {
+        public static final Set<String> FIELDS = Set.of("id", "model", "location", "isAvailable", "bookedBy",
+                "owner", "modelYear", "rentRate", "contactNumber", "photoUrl", "version", "latitude", "longitude");
+
+        @Override
+        public void write(JsonWriter out, Bike bike) throws IOException {
+            write(out, bike, null);
+        }
+
+        // Writes only the named fields; null means all of them.
+        public static void write(JsonWriter out, Bike bike, Set<String> fields) throws IOException {
+            if (bike == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeFields(out, bike, fields);
+            out.endObject();
+        }
+
+        // The fields without the enclosing object, for callers that add fields of their own
+        static void writeFields(JsonWriter out, Bike bike, Set<String> fields) throws IOException {
+            State s = bike.getState();
+            if (fields == null || fields.contains("id")) out.name("id").value(bike.getId());
+            if (fields == null || fields.contains("model")) out.name("model").value(bike.getModel());
+            if (fields == null || fields.contains("location")) out.name("location").value(bike.getLocation());
+            if (fields == null || fields.contains("isAvailable")) out.name("isAvailable").value(s.status() == AVAILABLE);
+            if (fields == null || fields.contains("bookedBy")) out.name("bookedBy").value(s.bookedBy());
+            if (fields == null || fields.contains("owner")) out.name("owner").value(bike.getOwner());
+            if (fields == null || fields.contains("modelYear")) out.name("modelYear").value(bike.getModelYear());
+            if (fields == null || fields.contains("rentRate")) out.name("rentRate").value(bike.getRentRate());
+            if (fields == null || fields.contains("contactNumber")) out.name("contactNumber").value(bike.getContactNumber());
+            if (fields == null || fields.contains("photoUrl")) out.name("photoUrl").value(bike.getPhotoUrl());
+            if (fields == null || fields.contains("version")) out.name("version").value(s.version());
+            if (bike.hasPosition()) {
+                if (fields == null || fields.contains("latitude")) out.name("latitude").value(bike.getLatitude());
+                if (fields == null || fields.contains("longitude")) out.name("longitude").value(bike.getLongitude());
+            }
+        }
+
+        @Override
+        public Bike read(JsonReader in) throws IOException {
+            throw new UnsupportedOperationException("Bike is not deserialized from JSON");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+// One change to the inventory as pushed over the WebSocket. Unused fields stay null and are left out of the JSON.
+public class BikeEvent {
+    public static final String BIKE_ADDED = "bikeAdded";
+    public static final String BIKE_BOOKED = "bikeBooked";
+    public static final String BIKE_RETURNED = "bikeReturned";
+    public static final String BIKE_REMOVED = "bikeRemoved";
+    // Not a BikeEvent itself: the full listing sent in reply to a resync that is too far behind
+    public static final String SNAPSHOT = "snapshot";
+    // Nor this: the reply to subscribe and unsubscribe, with the connection's topics
+    public static final String SUBSCRIBED = "subscribed";
+    // Nor this: sent once frames to a slow client were dropped, with the last seq it got before them
+    public static final String DROPPED = "dropped";
+
+    private static final Gson GSON = new Gson();
+
+    private final String type;
+    private long seq;
+    private final Integer bikeId;
+    private final Long version;
+    private final String bookedBy;
+    // The added bike as it was when listed. A stored bike is a view of its row, which may have
+    // been booked or removed by the time the publisher encodes the event.
+    private final JsonElement bike;
+    // Where the bike is and whose it is, for topic subscriptions; not part of the JSON
+    private transient String location;
+    private transient String owner;
+
+    private BikeEvent(String type, Integer bikeId, Long version, String bookedBy, JsonElement bike) {
+        this.type = type;
+        this.bikeId = bikeId;
+        this.version = version;
+        this.bookedBy = bookedBy;
+        this.bike = bike;
+    }
+
+    public static BikeEvent added(Bike bike) {
+        JsonElement json = GSON.toJsonTree(bike);
+        // The version the JSON was written at, from the same read of the state
+        return new BikeEvent(BIKE_ADDED, bike.getId(), json.getAsJsonObject().get("version").getAsLong(), null, json);
+    }
+
+    public static BikeEvent booked(int bikeId, long version, String bookedBy) {
+        return new BikeEvent(BIKE_BOOKED, bikeId, version, bookedBy, null);
+    }
+
+    public static BikeEvent returned(int bikeId, long version) {
+        return new BikeEvent(BIKE_RETURNED, bikeId, version, null, null);
+    }
+
+    public static BikeEvent removed(int bikeId, long version) {
+        return new BikeEvent(BIKE_REMOVED, bikeId, version, null, null);
+    }
+
+    public String getType() { return type; }
+    public long getSeq() { return seq; }
+    public Integer getBikeId() { return bikeId; }
+    public Long getVersion() { return version; }
+    public String getBookedBy() { return bookedBy; }
+    public JsonElement getBike() { return bike; }
+    public String getLocation() { return location; }
+    public String getOwner() { return owner; }
+    void setSeq(long seq) { this.seq = seq; }
+
+    BikeEvent about(Bike bike) {
+        this.location = bike.getLocation();
+        this.owner = bike.getOwner();
+        return this;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+
+// GET /api/bikes/export: the whole inventory as NDJSON, one bike per line in id order, in the
+// same fields as /api/bikes. Streamed as the bikes are read, so no listing is built in memory;
+// a bike that changes meanwhile appears as it is when its line is written.
+public class BikeExportHandler implements HttpHandler {
+
+    private final BikeRentalService bikeService;
+
+    public BikeExportHandler(BikeRentalService bikeService) {
+        this.bikeService = bikeService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                HandlerUtils.handleOptionsRequest(exchange);
+                return;
+            }
+            HandlerUtils.setCorsHeaders(exchange);
+
+            if ("GET".equals(exchange.getRequestMethod())) {
+                HandlerUtils.streamNdjsonResponse(exchange, 200, bikeService.allBikesInIdOrder(),
+                        (out, bike) -> Bike.Serializer.write(out, bike, null));
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// GET /api/bikes/{id}/history: every rental of the bike, newest first, for its owner only.
+// Takes the same from/to/limit parameters as /api/bookings.
+public class BikeHistoryHandler implements HttpHandler {
+
+    private static final Pattern PATH = Pattern.compile("^/api/bikes/(\\d+)/history/?$");
+
+    private final BikeRentalService bikeService;
+    private final Gson gson = new Gson();
+
+    public BikeHistoryHandler(BikeRentalService bikeService) {
+        this.bikeService = bikeService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                HandlerUtils.handleOptionsRequest(exchange);
+                return;
+            }
+            HandlerUtils.setCorsHeaders(exchange);
+
+            Matcher path = PATH.matcher(exchange.getRequestURI().getPath());
+            if (!path.matches()) {
+                HandlerUtils.sendJsonResponse(exchange, 404, gson.toJson(Map.of("success", false, "message", "Not found.")));
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            int bikeId;
+            long[] range;
+            try {
+                bikeId = Integer.parseInt(path.group(1));
+                range = BookingsHandler.range(HandlerUtils.parseQuery(exchange));
+            } catch (IllegalArgumentException e) {
+                HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", e.getMessage())));
+                return;
+            }
+
+            Bike bike = bikeService.getBike(bikeId);
+            if (bike == null) {
+                HandlerUtils.sendJsonResponse(exchange, 404, gson.toJson(Map.of("success", false, "message", "Bike not found.")));
+                return;
+            }
+            if (!bike.getOwner().equals(AuthFilter.principal(exchange))) {
+                HandlerUtils.sendJsonResponse(exchange, 403, gson.toJson(Map.of("success", false, "message", "Only the bike's owner can see its history.")));
+                return;
+            }
+
+            List<BookingLedger.Rental> rentals = bikeService.getBikeHistory(bikeId, range[0], range[1], (int) range[2]);
+            HandlerUtils.sendJsonResponse(exchange, 200, gson.toJson(rentals));
+        } finally {
+            exchange.close();
+        }
+    }
+}
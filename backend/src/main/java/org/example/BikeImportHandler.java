@@ -0,0 +1,92 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// POST /api/bikes/import: lists the bikes in an NDJSON body for the caller, one /api/list-bike
+// body per line (an /api/bikes/export file works too; ids, owners and states in it are ignored).
+// The body is read a line at a time and listed in batches of BATCH_SIZE bikes, or fewer if their
+// lines add up to BATCH_BYTES, so memory stays flat however long it is. Each batch is one call to
+// listBikes. The first bad line stops the import; the batches before it stay listed and the 400
+// says how many bikes that was.
+public class BikeImportHandler implements HttpHandler {
+
+    static final int BATCH_SIZE = 1000;
+    static final int BATCH_BYTES = 4 * 1024 * 1024;
+
+    private final BikeRentalService bikeService;
+    private final Gson gson = new Gson();
+
+    public BikeImportHandler(BikeRentalService bikeService) {
+        this.bikeService = bikeService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                HandlerUtils.handleOptionsRequest(exchange);
+                return;
+            }
+            HandlerUtils.setCorsHeaders(exchange);
+
+            if ("POST".equals(exchange.getRequestMethod())) {
+                String username = AuthFilter.principal(exchange);
+                BufferedReader lines = new BufferedReader(
+                        new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8), 1 << 16);
+
+                List<BikeRentalService.NewBike> batch = new ArrayList<>(BATCH_SIZE);
+                int batchBytes = 0;
+                int imported = 0;
+                int lineNumber = 0;
+                for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        batch.add(ListBikeHandler.toNewBike(gson.fromJson(line, Map.class)));
+                    } catch (JsonParseException | IllegalArgumentException | ClassCastException e) {
+                        imported += list(batch, username);
+                        String message = e instanceof IllegalArgumentException ? e.getMessage() : "Not a bike object.";
+                        HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false,
+                                "message", "Line " + lineNumber + ": " + message, "imported", imported)));
+                        return;
+                    }
+                    batchBytes += line.length();
+                    if (batch.size() == BATCH_SIZE || batchBytes >= BATCH_BYTES) {
+                        imported += list(batch, username);
+                        batchBytes = 0;
+                    }
+                }
+                imported += list(batch, username);
+                HandlerUtils.sendJsonResponse(exchange, 200, gson.toJson(Map.of("success", true, "imported", imported)));
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        } catch (Exception e) {
+            HandlerUtils.sendJsonResponse(exchange, 500, gson.toJson(Map.of("success", false, "message", "Error processing request: " + e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Lists and empties the batch; returns how many bikes it held
+    private int list(List<BikeRentalService.NewBike> batch, String username) {
+        int size = batch.size();
+        if (size > 0) {
+            bikeService.listBikes(batch, username);
+            batch.clear();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,92 @@
+package org.example;
+
+import java.util.Comparator;
+import java.util.Map;
+
+// A page request against the inventory: filters, sort order, cursor and page size.
+// Pages are cursor-based: "after" is the id of the last bike of the previous page.
+public class BikeQuery {
+
+    private static final Map<String, Comparator<Bike>> SORT_KEYS = Map.of(
+            "id", Comparator.comparingInt(Bike::getId),
+            "rentRate", Comparator.comparingDouble(Bike::getRentRate),
+            "modelYear", Comparator.comparingInt(Bike::getModelYear),
+            "model", Comparator.comparing(Bike::getModel),
+            "location", Comparator.comparing(Bike::getLocation)
+    );
+
+    private Boolean available;
+    private String location;
+    private String sortKey = "id";
+    private boolean descending;
+    private Integer after;
+    private int limit = Integer.MAX_VALUE;
+
+    public Boolean getAvailable() { return available; }
+    public String getLocation() { return location; }
+    public Integer getAfter() { return after; }
+    public int getLimit() { return limit; }
+
+    public BikeQuery available(Boolean available) {
+        this.available = available;
+        return this;
+    }
+
+    public BikeQuery location(String location) {
+        this.location = location;
+        return this;
+    }
+
+    public BikeQuery after(Integer after) {
+        this.after = after;
+        return this;
+    }
+
+    public BikeQuery limit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    // "rentRate" sorts ascending, "-rentRate" descending. Ties are always broken by id.
+    public BikeQuery sort(String sort) {
+        boolean desc = sort.startsWith("-");
+        String key = desc ? sort.substring(1) : sort;
+        if (!SORT_KEYS.containsKey(key)) {
+            throw new IllegalArgumentException("Cannot sort by " + key + ", use one of " + SORT_KEYS.keySet());
+        }
+        this.sortKey = key;
+        this.descending = desc;
+        return this;
+    }
+
+    // Plain ascending id order can be streamed straight off the id space without sorting.
+    public boolean isIdOrder() {
+        return "id".equals(sortKey) && !descending;
+    }
+
+    public boolean isIdSort() {
+        return "id".equals(sortKey);
+    }
+
+    public Comparator<Bike> comparator() {
+        Comparator<Bike> order = SORT_KEYS.get(sortKey);
+        if (descending) {
+            order = order.reversed();
+        }
+        return order.thenComparingInt(Bike::getId);
+    }
+
+    public boolean matches(Bike bike) {
+        int status = bike.getState().status();
+        if (status == Bike.REMOVED) {
+            return false;
+        }
+        if (available != null && available != (status == Bike.AVAILABLE)) {
+            return false;
+        }
+        return location == null || location.equals(bike.getLocation());
+    }
+}
@@ -2,37 +2,139 @@ package org.example;
 
 import com.google.gson.Gson;
 import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.Framedata;
 import org.java_websocket.server.WebSocketServer;
 import org.java_websocket.handshake.ClientHandshake;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+// Frames go out through deliver(), which keeps each client's outgoing buffer within
+// WebSocketLimits; snapshots and replays take the same check, and a client over the limit has
+// its requests ignored. A background check pings clients, evicts silent ones and catches up
+// clients that fell behind.
 public class BikeWebSocketServer extends WebSocketServer {
 
+    // What the server tracks per connection, kept as its attachment. lastSeq and behind change
+    // only with the publisher's journal held, so sends and catch-ups cannot interleave.
+    private static final class Client {
+        volatile long lastSeq = -1;
+        volatile boolean behind;
+        volatile long overLimitSinceNanos;
+        volatile long lastHeardNanos = System.nanoTime();
+    }
+
+    // The last snapshot frame, reused while the listing and seq are the same
+    private record Snapshot(long seq, byte[] bikes, SharedFrame frame) {}
+
     private Set<WebSocket> connections = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Subscriptions subscriptions = new Subscriptions();
     private Gson gson = new Gson();
+    private final BikeRentalService bikeService;
+    private final WebSocketLimits limits;
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "websocket-checker");
+        t.setDaemon(true);
+        return t;
+    });
+    private long lastPingNanos = System.nanoTime();
+    private volatile Snapshot lastSnapshot;
+
+    // --- STATS ---
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder catchUps = new LongAdder();
+    private final LongAdder slowDisconnects = new LongAdder();
+    private final LongAdder deadEvictions = new LongAdder();
+    private final LongAdder messagesIgnored = new LongAdder();
+
+    // -Dws.deflate=false turns permessage-deflate off; see WebSocketLimits for the other ws.* properties
+    public BikeWebSocketServer(InetSocketAddress address, BikeRentalService bikeService) {
+        this(address, bikeService, WebSocketLimits.fromSystemProperties(),
+                Boolean.parseBoolean(System.getProperty("ws.deflate", "true")));
+    }
 
-    public BikeWebSocketServer(InetSocketAddress address) {
-        super(address);
+    public BikeWebSocketServer(InetSocketAddress address, BikeRentalService bikeService, WebSocketLimits limits,
+                               boolean deflate) {
+        super(address, List.of(draft(deflate)));
+        this.bikeService = bikeService;
+        this.limits = limits;
         System.out.println("WebSocket server started on port " + address.getPort());
     }
 
     @Override
     public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        conn.setAttachment(new Client());
         connections.add(conn);
+        subscriptions.connected(conn);
         System.out.println("New WebSocket connection: " + conn.getRemoteSocketAddress());
     }
 
     @Override
     public void onClose(WebSocket conn, int code, String reason, boolean remote) {
         connections.remove(conn);
+        subscriptions.disconnected(conn);
         System.out.println("Closed WebSocket connection: " + conn.getRemoteSocketAddress());
     }
 
     @Override
     public void onMessage(WebSocket conn, String message) {
+        heard(conn);
+        // Clients send {"type":"resync","lastSeq":N} on connect and whenever they spot a gap in seq.
+        // They get the deltas after N, or a full snapshot if those are no longer in the journal.
+        //
+        // {"type":"subscribe","locations":[...],"owners":[...],"bikes":[...],"all":true} narrows what
+        // the connection gets to changes on those topics; unsubscribe takes the same fields. Both are
+        // answered with {"type":"subscribed","topics":[...]}. A subscribed client still sees the global
+        // seq, so its deltas skip numbers; a resync replays only the deltas on its topics. As it
+        // cannot tell a lost frame from a gap, the server says so: see resumeAfterDrop.
+        //
+        // Every request is answered with a frame, so none is taken from a client over the buffer
+        // limit; it gets no reply, and is caught up or told what it missed once it drains.
+        if (queuedBytes(conn) > limits.maxQueuedBytes()) {
+            messagesIgnored.increment();
+            return;
+        }
+        try {
+            Map<String, Object> request = gson.fromJson(message, Map.class);
+            Object type = request == null ? null : request.get("type");
+            if ("resync".equals(type)) {
+                Object lastSeq = request.get("lastSeq");
+                long seq = lastSeq instanceof Double ? ((Double) lastSeq).longValue() : -1;
+                bikeService.replaySince(seq, conn);
+            } else if ("subscribe".equals(type) || "unsubscribe".equals(type)) {
+                List<String> topics = topics(request);
+                if ("subscribe".equals(type)) {
+                    subscriptions.subscribe(conn, topics);
+                } else {
+                    subscriptions.unsubscribe(conn, topics);
+                }
+                Map<String, Object> reply = new LinkedHashMap<>();
+                reply.put("type", BikeEvent.SUBSCRIBED);
+                reply.put("topics", subscriptions.topicsOf(conn));
+                conn.send(gson.toJson(reply));
+            }
+        } catch (Exception e) {
+            System.err.println("Ignoring bad WebSocket message from " + conn.getRemoteSocketAddress() + ": " + e.getMessage());
+        }
     }
 
     @Override
@@ -43,18 +145,331 @@ public class BikeWebSocketServer extends WebSocketServer {
 
         if (conn != null) {
             connections.remove(conn);
+            subscriptions.disconnected(conn);
         }
     }
 
+    @Override
+    public void onWebsocketPong(WebSocket conn, Framedata f) {
+        heard(conn);
+    }
+
     @Override
     public void onStart() {
-        // not needed
+        // The library's own ping timer, started just before this, is replaced by checkClients(),
+        // which also counts evictions. Stopped here rather than in the constructor, which must
+        // not call methods a subclass could override.
+        setConnectionLostTimeout(0);
+        checker.scheduleWithFixedDelay(this::checkClients, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void stop(int timeout, String closeMessage) throws InterruptedException {
+        checker.shutdownNow();
+        super.stop(timeout, closeMessage);
+    }
+
+    // A snapshot as the reply to a resync or a catch-up; the client is current as of seq
+    public void snapshot(WebSocket conn, long seq, byte[] bikesJson) {
+        Client client = conn.getAttachment();
+        if (client == null || !hasRoom(conn, client)) {
+            return;
+        }
+        client.lastSeq = seq;
+        client.behind = false;
+        Snapshot cached = lastSnapshot;
+        if (cached == null || cached.seq() != seq || cached.bikes() != bikesJson) {
+            cached = new Snapshot(seq, bikesJson, snapshotFrame(seq, bikesJson));
+            lastSnapshot = cached;
+        }
+        cached.frame().sendTo(conn);
     }
 
+    // {"type":"snapshot","seq":N,"bikes":[...]} around the cached listing bytes. Framed once per
+    // listing, so clients resyncing together (after a restart, say) share one frame and one deflate.
+    static SharedFrame snapshotFrame(long seq, byte[] bikesJson) {
+        byte[] head = ("{\"type\":\"" + BikeEvent.SNAPSHOT + "\",\"seq\":" + seq + ",\"bikes\":")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] payload = Arrays.copyOf(head, head.length + bikesJson.length + 1);
+        System.arraycopy(bikesJson, 0, payload, head.length, bikesJson.length);
+        payload[payload.length - 1] = '}';
+        return new SharedFrame(payload);
+    }
+
+    // Fan-out time and the client count are on /api/metrics, rather than a log line per frame
     public void broadcast(String jsonMessage) {
+        SharedFrame frame = new SharedFrame(jsonMessage);
         for (WebSocket conn : connections) {
-            conn.send(jsonMessage);
+            deliver(conn, frame, -1);
+        }
+    }
+
+    // Sends every connection the events of the batch on its topics, as one frame. Connections on
+    // ALL share the full frame; the rest are found through the topic index, so the work grows with
+    // the clients interested in the batch rather than with every connection. Connections that want
+    // the same events out of the batch share a frame as well.
+    public void publish(List<EventJournal.Entry> batch) {
+        long seq = batch.get(batch.size() - 1).seq();
+        Set<WebSocket> everything = subscriptions.everything();
+        if (!everything.isEmpty()) {
+            SharedFrame frame = toFrame(batch);
+            for (WebSocket conn : everything) {
+                deliver(conn, frame, seq);
+            }
+        }
+        Map<WebSocket, BitSet> selected = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            int index = i;
+            subscriptions.forEachSubscriber(batch.get(i),
+                    conn -> selected.computeIfAbsent(conn, c -> new BitSet()).set(index));
+        }
+        Map<BitSet, SharedFrame> frames = new HashMap<>();
+        selected.forEach((conn, events) -> {
+            if (!everything.contains(conn)) {
+                deliver(conn, frames.computeIfAbsent(events, e -> toFrame(e.stream().mapToObj(batch::get).toList())), seq);
+            }
+        });
+    }
+
+    // The journal entries a resync or catch-up missed, cut down to the connection's topics.
+    // Sent as it is: a catch-up is due once the buffer is under the limit, whatever its size.
+    public void replay(WebSocket conn, List<EventJournal.Entry> missed) {
+        Client client = conn.getAttachment();
+        if (client == null || !hasRoom(conn, client)) {
+            return;
+        }
+        List<EventJournal.Entry> wanted = new ArrayList<>(missed.size());
+        for (EventJournal.Entry entry : missed) {
+            if (subscriptions.matches(conn, entry)) {
+                wanted.add(entry);
+            }
+        }
+        if (!missed.isEmpty()) {
+            client.lastSeq = missed.get(missed.size() - 1).seq();
+        }
+        client.behind = false;
+        if (!wanted.isEmpty()) {
+            send(conn, toFrame(wanted));
+        }
+    }
+
+    // Tells a client that frames to it were dropped, with the last seq it was sent before them:
+    // {"type":"dropped","lastSeq":N}. The client answers with a resync from N, as it would after a
+    // gap. Called with the journal held, once the client's buffer is back under the limit.
+    void resumeAfterDrop(WebSocket conn) {
+        Client client = conn.getAttachment();
+        if (client == null || !client.behind) {
+            return;
+        }
+        client.behind = false;
+        send(conn, new SharedFrame("{\"type\":\"" + BikeEvent.DROPPED + "\",\"lastSeq\":" + client.lastSeq + "}"));
+    }
+
+    boolean isBehind(WebSocket conn) {
+        Client client = conn.getAttachment();
+        return client != null && client.behind;
+    }
+
+    long getLastSent(WebSocket conn) {
+        Client client = conn.getAttachment();
+        return client == null ? -1 : client.lastSeq;
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public long getFramesDropped() { return framesDropped.sum(); }
+    public long getCatchUps() { return catchUps.sum(); }
+    public long getSlowDisconnects() { return slowDisconnects.sum(); }
+    public long getDeadEvictions() { return deadEvictions.sum(); }
+    public long getMessagesIgnored() { return messagesIgnored.sum(); }
+
+    public int getClientsBehind() {
+        int behind = 0;
+        for (WebSocket conn : connections) {
+            if (isBehind(conn)) {
+                behind++;
+            }
+        }
+        return behind;
+    }
+
+    // Bytes waiting in every client's outgoing buffer, and in the fullest one
+    public long getQueuedBytes() {
+        long total = 0;
+        for (WebSocket conn : connections) {
+            total += queuedBytes(conn);
+        }
+        return total;
+    }
+
+    public long getMaxQueuedBytes() {
+        long max = 0;
+        for (WebSocket conn : connections) {
+            max = Math.max(max, queuedBytes(conn));
+        }
+        return max;
+    }
+
+    public Subscriptions getSubscriptions() {
+        return subscriptions;
+    }
+
+    // Sends a frame unless the client's buffer is over the limit, in which case the frame is
+    // dropped and the policy applies. seq is the last event the frame covers, -1 if none.
+    private void deliver(WebSocket conn, SharedFrame frame, long seq) {
+        Client client = conn.getAttachment();
+        if (client == null) {
+            return;
+        }
+        if (!hasRoom(conn, client)) {
+            return;
+        }
+        client.overLimitSinceNanos = 0;
+        if (client.behind && limits.policy() == WebSocketLimits.Policy.COALESCE) {
+            // This batch is already in the journal, so the catch-up covers it too
+            catchUp(conn);
+            return;
+        }
+        if (client.behind) {
+            resumeAfterDrop(conn);
+        }
+        if (send(conn, frame) && seq >= 0) {
+            client.lastSeq = seq;
+        }
+    }
+
+    // Whether the client's buffer is under the limit. If not, the frame about to be sent is
+    // counted as dropped and the policy applies.
+    private boolean hasRoom(WebSocket conn, Client client) {
+        if (queuedBytes(conn) > limits.maxQueuedBytes()) {
+            framesDropped.increment();
+            overLimit(conn, client);
+            return false;
+        }
+        return true;
+    }
+
+    private void overLimit(WebSocket conn, Client client) {
+        client.behind = true;
+        long now = System.nanoTime();
+        if (client.overLimitSinceNanos == 0) {
+            client.overLimitSinceNanos = now;
+        } else if (limits.policy() == WebSocketLimits.Policy.DISCONNECT
+                && now - client.overLimitSinceNanos > TimeUnit.MILLISECONDS.toNanos(limits.graceMillis())) {
+            slowDisconnects.increment();
+            conn.closeConnection(CloseFrame.TRY_AGAIN_LATER, "Client too slow");
+        }
+    }
+
+    private void catchUp(WebSocket conn) {
+        if (bikeService.getPublisher().catchUp(conn)) {
+            catchUps.increment();
+        }
+    }
+
+    // Runs every second: pings clients every pingSeconds and closes those silent for two
+    // intervals, catches up COALESCE clients that drained and tells the others what they lost,
+    // and disconnects per the policy clients that stay over the limit while nothing is published.
+    private void checkClients() {
+        try {
+            long now = System.nanoTime();
+            long pingNanos = TimeUnit.SECONDS.toNanos(limits.pingSeconds());
+            boolean ping = pingNanos > 0 && now - lastPingNanos >= pingNanos;
+            if (ping) {
+                lastPingNanos = now;
+            }
+            for (WebSocket conn : connections) {
+                Client client = conn.getAttachment();
+                if (client == null || !conn.isOpen()) {
+                    continue;
+                }
+                if (pingNanos > 0 && now - client.lastHeardNanos > 2 * pingNanos) {
+                    deadEvictions.increment();
+                    conn.closeConnection(CloseFrame.ABNORMAL_CLOSE, "No pong within " + 2 * limits.pingSeconds() + "s");
+                    continue;
+                }
+                if (client.behind) {
+                    if (queuedBytes(conn) > limits.maxQueuedBytes()) {
+                        overLimit(conn, client);
+                    } else if (limits.policy() == WebSocketLimits.Policy.COALESCE) {
+                        catchUp(conn);
+                    } else {
+                        bikeService.getPublisher().resumeAfterDrop(conn);
+                    }
+                }
+                if (ping) {
+                    conn.sendPing();
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("WebSocket client check failed: " + e.getMessage());
+        }
+    }
+
+    private static void heard(WebSocket conn) {
+        Client client = conn.getAttachment();
+        if (client != null) {
+            client.lastHeardNanos = System.nanoTime();
+        }
+    }
+
+    // A connection can close between the check and the send; the frame is then just lost
+    private static boolean send(WebSocket conn, SharedFrame frame) {
+        return frame.sendTo(conn);
+    }
+
+    private static long queuedBytes(WebSocket conn) {
+        long bytes = 0;
+        for (ByteBuffer buffer : ((WebSocketImpl) conn).outQueue) {
+            bytes += buffer.remaining();
+        }
+        return bytes;
+    }
+
+    private static SharedFrame toFrame(List<EventJournal.Entry> events) {
+        StringBuilder frame = new StringBuilder(events.size() * 128).append('[');
+        for (EventJournal.Entry event : events) {
+            if (frame.length() > 1) {
+                frame.append(',');
+            }
+            frame.append(event.json());
+        }
+        return new SharedFrame(frame.append(']').toString());
+    }
+
+    // With deflate, permessage-deflate is accepted from clients that offer it, without server
+    // context takeover: every message is compressed on its own, as SharedFrame requires
+    private static Draft draft(boolean deflate) {
+        if (!deflate) {
+            return new Draft_6455();
+        }
+        PerMessageDeflateExtension extension = new PerMessageDeflateExtension();
+        extension.setServerNoContextTakeover(true);
+        extension.setThreshold(SharedFrame.DEFLATE_THRESHOLD);
+        return new Draft_6455(extension);
+    }
+
+    // Location, owner and bike topics from a subscribe or unsubscribe message
+    private static List<String> topics(Map<String, Object> request) {
+        List<String> topics = new ArrayList<>();
+        if (Boolean.TRUE.equals(request.get("all"))) {
+            topics.add(Subscriptions.ALL);
+        }
+        if (request.get("locations") instanceof List<?> locations) {
+            locations.forEach(l -> topics.add(Subscriptions.location(String.valueOf(l))));
+        }
+        if (request.get("owners") instanceof List<?> owners) {
+            owners.forEach(o -> topics.add(Subscriptions.owner(String.valueOf(o))));
+        }
+        if (request.get("bikes") instanceof List<?> bikes) {
+            for (Object id : bikes) {
+                if (id instanceof Double d) {
+                    topics.add(Subscriptions.bike(d.intValue()));
+                }
+            }
         }
-        System.out.println("Broadcasted update to " + connections.size() + " clients.");
+        return topics;
     }
 }
\ No newline at end of file
@@ -4,10 +4,18 @@ import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 public class BikesHandler implements HttpHandler {
 
+    // Pages are bounded like /api/bikes/free, so a sorted page never holds the whole fleet
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
     private final BikeRentalService bikeService;
     private final Gson gson = new Gson();
 
@@ -26,9 +34,32 @@ public class BikesHandler implements HttpHandler {
             HandlerUtils.setCorsHeaders(exchange);
 
             if ("GET".equals(exchange.getRequestMethod())) {
-                List<Bike> bikes = bikeService.getAllBikes();
-                String jsonResponse = gson.toJson(bikes);
-                HandlerUtils.sendJsonResponse(exchange, 200, jsonResponse);
+                // All parameters are optional, e.g.
+                // /api/bikes?available=true&location=Beta&sort=-rentRate&limit=50&after=1042&exclude=photoUrl
+                // The next page is asked for with after=<id of the last bike received>. A page holds
+                // 100 bikes unless limit says otherwise, and at most 1000; /api/bikes/export has them all.
+                Map<String, String> query = HandlerUtils.parseQuery(exchange);
+                if (query.isEmpty()) {
+                    sendFullListing(exchange);
+                    return;
+                }
+                Iterator<Bike> bikes;
+                Set<String> fields;
+                try {
+                    bikes = bikeService.queryBikes(toBikeQuery(query));
+                    fields = projection(query);
+                } catch (IllegalArgumentException e) {
+                    HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", e.getMessage())));
+                    return;
+                }
+
+                HandlerUtils.streamJsonResponse(exchange, 200, out -> {
+                    out.beginArray();
+                    while (bikes.hasNext()) {
+                        Bike.Serializer.write(out, bikes.next(), fields);
+                    }
+                    out.endArray();
+                });
             } else {
                 exchange.sendResponseHeaders(405, -1);
             }
@@ -36,4 +67,57 @@ public class BikesHandler implements HttpHandler {
             exchange.close();
         }
     }
-}
\ No newline at end of file
+
+    // The plain listing is served from bytes cached per inventory version, with an ETag
+    // so a client whose copy is still current gets a 304 and no body at all.
+    private void sendFullListing(HttpExchange exchange) throws IOException {
+        InventorySnapshot.Encoded listing = bikeService.getInventorySnapshot();
+        exchange.getResponseHeaders().set("ETag", listing.etag());
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.contains(listing.etag())) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        HandlerUtils.sendJsonResponse(exchange, 200, listing.plain(), listing.gzip());
+    }
+
+    private static BikeQuery toBikeQuery(Map<String, String> query) {
+        BikeQuery bikeQuery = new BikeQuery().location(query.get("location"));
+        if (query.containsKey("available")) {
+            String available = query.get("available");
+            if (!"true".equals(available) && !"false".equals(available)) {
+                throw new IllegalArgumentException("available must be true or false.");
+            }
+            bikeQuery.available(Boolean.valueOf(available));
+        }
+        if (query.containsKey("sort")) {
+            bikeQuery.sort(query.get("sort"));
+        }
+        if (query.containsKey("after")) {
+            bikeQuery.after(Integer.valueOf(query.get("after")));
+        }
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_LIMIT;
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT + ".");
+        }
+        return bikeQuery.limit(limit);
+    }
+
+    // fields=id,model keeps only those fields; exclude=photoUrl drops the named ones. Null means all fields.
+    private static Set<String> projection(Map<String, String> query) {
+        if (query.containsKey("fields")) {
+            Set<String> fields = new HashSet<>(Arrays.asList(query.get("fields").split(",")));
+            fields.retainAll(Bike.Serializer.FIELDS);
+            return fields;
+        }
+        if (query.containsKey("exclude")) {
+            Set<String> fields = new HashSet<>(Bike.Serializer.FIELDS);
+            Arrays.asList(query.get("exclude").split(",")).forEach(fields::remove);
+            return fields;
+        }
+        return null;
+    }
+}
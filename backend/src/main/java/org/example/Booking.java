@@ -1,17 +0,0 @@
-package org.example;
-
-public class Booking {
-    private String userId;
-    private int bikeId;
-    private long bookingTime;
-
-    public Booking(String userId, int bikeId, long bookingTime) {
-        this.userId = userId;
-        this.bikeId = bikeId;
-        this.bookingTime = bookingTime;
-    }
-
-    public String getUserId() { return userId; }
-    public int getBikeId() { return bikeId; }
-    public long getBookingTime() { return bookingTime; }
-}
\ No newline at end of file
@@ -0,0 +1,328 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Append-only rental history. A booking opens a row; the matching return closes it with the end
+// time and the charge. Rows are fixed width and kept in segments of SEGMENT_ROWS, so an append
+// never copies earlier history. Given a directory, each segment is a memory-mapped file and the
+// history lives in the page cache, not on the heap: what stays in memory per rental is one int
+// in the user's id list and one in the bike's.
+//
+// Every method runs under the ledger's monitor. With a write-ahead log, opens and closes already
+// run one at a time under the log, so the monitor is uncontended there.
+public class BookingLedger implements Closeable {
+
+    // endTime and charge are null while the rental is open
+    public record Rental(int id, String userId, int bikeId, long startTime, Long endTime, double rentRate, Double charge) {}
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int SEGMENT_ROWS = 1 << 16;
+    // bikeId int, user int, start long, end long, rentRate double, charge double, booking version long
+    private static final int ROW_BYTES = 48;
+    private static final int SEGMENT_BYTES = SEGMENT_ROWS * ROW_BYTES;
+    private static final String SEGMENT_PREFIX = "ledger-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String USERS_FILE = "ledger-users.dat";
+
+    private final Path dir; // null keeps the ledger on the heap
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private int size;
+
+    // User ids are stored once and referred to by index from the rows
+    private final Map<String, Integer> userIndex = new HashMap<>();
+    private final List<String> userNames = new ArrayList<>();
+    private FileChannel usersFile;
+
+    private final Map<Integer, IdList> byUser = new HashMap<>();
+    private final Map<Integer, IdList> byBike = new HashMap<>();
+    // A return that was logged before its own booking: {version, endTime}, applied when the booking arrives
+    private final Map<Integer, long[]> pendingCloses = new HashMap<>();
+
+    public BookingLedger() {
+        this.dir = null;
+    }
+
+    public BookingLedger(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        usersFile = FileChannel.open(dir.resolve(USERS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readUsers();
+        for (int n = 0; Files.exists(segmentPath(n)); n++) {
+            segments.add(mapSegment(n));
+        }
+    }
+
+    public boolean isPersistent() {
+        return dir != null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int open(String userId, int bikeId, long version, long startTime, double rentRate) {
+        int id = size;
+        if (id / SEGMENT_ROWS == segments.size()) {
+            segments.add(newSegment(segments.size()));
+        }
+        ByteBuffer segment = segments.get(id / SEGMENT_ROWS);
+        int at = (id % SEGMENT_ROWS) * ROW_BYTES;
+        int user = intern(userId);
+        segment.putInt(at, bikeId)
+                .putInt(at + 4, user)
+                .putLong(at + 8, startTime)
+                .putLong(at + 16, 0)
+                .putDouble(at + 24, rentRate)
+                .putDouble(at + 32, 0)
+                .putLong(at + 40, version);
+        size = id + 1;
+        index(id, user, bikeId);
+
+        long[] pending = pendingCloses.get(bikeId);
+        if (pending != null && pending[0] == version + 1) {
+            pendingCloses.remove(bikeId);
+            closeRow(id, pending[1]);
+        }
+        return id;
+    }
+
+    // Closes the rental opened by the booking that took the bike to version - 1. Closing one
+    // that is already closed, as a replayed return may, changes nothing. Transitions are logged
+    // after their CAS, so a later booking of the bike can be logged before this return: the
+    // rental is looked for back through the bike's history, which is usually its last row.
+    public synchronized void close(int bikeId, long version, long endTime) {
+        IdList rentals = byBike.get(bikeId);
+        for (int i = rentals == null ? 0 : rentals.size(); i > 0; i--) {
+            int id = rentals.get(i - 1);
+            if (row(id).getLong(at(id) + 40) == version - 1) {
+                if (row(id).getLong(at(id) + 16) == 0) {
+                    closeRow(id, endTime);
+                }
+                return;
+            }
+        }
+        // Not booked yet as far as the log goes
+        pendingCloses.put(bikeId, new long[]{version, endTime});
+    }
+
+    // Rentals of the user that overlap [from, to), newest first
+    public List<Rental> forUser(String userId, long from, long to, int limit) {
+        IdList ids;
+        synchronized (this) {
+            Integer user = userIndex.get(userId);
+            ids = user == null ? null : byUser.get(user);
+        }
+        return query(ids, from, to, limit);
+    }
+
+    // Rentals of the bike that overlap [from, to), newest first
+    public List<Rental> forBike(int bikeId, long from, long to, int limit) {
+        IdList ids;
+        synchronized (this) {
+            ids = byBike.get(bikeId);
+        }
+        return query(ids, from, to, limit);
+    }
+
+    // Recovery: keeps the first `count` rows, which a checkpoint covers, and rebuilds the indexes
+    // from them. Later rows are rewritten as the log is replayed.
+    public synchronized void restore(int count) {
+        if ((long) count > (long) segments.size() * SEGMENT_ROWS) {
+            throw new IllegalStateException("Ledger has fewer rows than the checkpoint expects: " + count);
+        }
+        byUser.clear();
+        byBike.clear();
+        pendingCloses.clear();
+        size = count;
+        for (int id = 0; id < count; id++) {
+            ByteBuffer segment = row(id);
+            int at = at(id);
+            index(id, segment.getInt(at + 4), segment.getInt(at));
+        }
+    }
+
+    // Writes mapped rows and the user table to disk; a checkpoint calls this before it relies on them.
+    public synchronized void force() throws IOException {
+        if (dir == null) {
+            return;
+        }
+        for (ByteBuffer segment : segments) {
+            ((MappedByteBuffer) segment).force();
+        }
+        usersFile.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        if (usersFile != null) {
+            usersFile.close();
+        }
+    }
+
+    private List<Rental> query(IdList ids, long from, long to, int limit) {
+        List<Rental> result = new ArrayList<>();
+        if (ids == null) {
+            return result;
+        }
+        int i;
+        synchronized (this) {
+            i = ids.size();
+        }
+        // A page of rows per lock hold, so a long history does not hold up bookings
+        while (i > 0 && result.size() < limit) {
+            synchronized (this) {
+                for (int n = 0; n < 256 && i > 0 && result.size() < limit; n++) {
+                    Rental rental = read(ids.get(--i));
+                    if (rental.startTime() < to && (rental.endTime() == null || rental.endTime() > from)) {
+                        result.add(rental);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private Rental read(int id) {
+        ByteBuffer segment = row(id);
+        int at = at(id);
+        long end = segment.getLong(at + 16);
+        return new Rental(id, userNames.get(segment.getInt(at + 4)), segment.getInt(at), segment.getLong(at + 8),
+                end == 0 ? null : end, segment.getDouble(at + 24), end == 0 ? null : segment.getDouble(at + 32));
+    }
+
+    // Charged per day started, at least one
+    private void closeRow(int id, long endTime) {
+        ByteBuffer segment = row(id);
+        int at = at(id);
+        long days = Math.max(1, (endTime - segment.getLong(at + 8) + DAY_MILLIS - 1) / DAY_MILLIS);
+        segment.putDouble(at + 32, days * segment.getDouble(at + 24));
+        segment.putLong(at + 16, endTime);
+    }
+
+    private void index(int id, int user, int bikeId) {
+        byUser.computeIfAbsent(user, k -> new IdList()).add(id);
+        byBike.computeIfAbsent(bikeId, k -> new IdList()).add(id);
+    }
+
+    private ByteBuffer row(int id) {
+        return segments.get(id / SEGMENT_ROWS);
+    }
+
+    private static int at(int id) {
+        return (id % SEGMENT_ROWS) * ROW_BYTES;
+    }
+
+    private int intern(String userId) {
+        Integer existing = userIndex.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int user = userNames.size();
+        if (usersFile != null) {
+            byte[] bytes = userId.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length).putInt(bytes.length).put(bytes).flip();
+            try {
+                while (entry.hasRemaining()) {
+                    usersFile.write(entry, usersFile.size());
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not record ledger user " + userId, e);
+            }
+        }
+        userNames.add(userId);
+        userIndex.put(userId, user);
+        return user;
+    }
+
+    // Reads the user table, dropping a torn entry at the end
+    private void readUsers() throws IOException {
+        ByteBuffer all = ByteBuffer.allocate((int) usersFile.size());
+        while (all.hasRemaining() && usersFile.read(all, all.position()) > 0) {
+            // keep reading
+        }
+        all.flip();
+        while (all.remaining() >= 4) {
+            int length = all.getInt(all.position());
+            if (length < 0 || all.remaining() < 4 + length) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            all.position(all.position() + 4).get(bytes);
+            String userId = new String(bytes, StandardCharsets.UTF_8);
+            userIndex.put(userId, userNames.size());
+            userNames.add(userId);
+        }
+        usersFile.truncate(all.position());
+    }
+
+    private ByteBuffer newSegment(int n) {
+        if (dir == null) {
+            return ByteBuffer.allocate(SEGMENT_BYTES);
+        }
+        try {
+            ByteBuffer segment = mapSegment(n);
+            WriteAheadLog.syncDirectory(dir);
+            return segment;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create ledger segment " + n, e);
+        }
+    }
+
+    private MappedByteBuffer mapSegment(int n) throws IOException {
+        try (FileChannel ch = FileChannel.open(segmentPath(n),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+    }
+
+    private Path segmentPath(int n) {
+        return dir.resolve(SEGMENT_PREFIX + String.format("%06d", n) + SEGMENT_SUFFIX);
+    }
+
+    // Growable list of rental ids. The first chunk starts small, since most bikes and users have
+    // few rentals; past that, growing adds a chunk and never copies the ids already stored.
+    private static final class IdList {
+        private static final int CHUNK = 1024;
+        private int[][] chunks = new int[1][];
+        private int size;
+
+        void add(int id) {
+            int c = size / CHUNK;
+            int o = size % CHUNK;
+            if (c == chunks.length) {
+                chunks = Arrays.copyOf(chunks, c * 2);
+            }
+            int[] chunk = chunks[c];
+            if (chunk == null) {
+                chunk = chunks[c] = new int[c == 0 ? 4 : CHUNK];
+            } else if (o == chunk.length) {
+                chunk = chunks[c] = Arrays.copyOf(chunk, Math.min(CHUNK, o * 2));
+            }
+            chunk[o] = id;
+            size++;
+        }
+
+        int get(int i) {
+            return chunks[i / CHUNK][i % CHUNK];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
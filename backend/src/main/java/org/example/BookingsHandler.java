@@ -0,0 +1,69 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+// GET /api/bookings: the caller's own rentals, newest first.
+// Optional from/to (epoch millis) keep rentals overlapping that window; limit caps the count.
+public class BookingsHandler implements HttpHandler {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private final BikeRentalService bikeService;
+    private final Gson gson = new Gson();
+
+    public BookingsHandler(BikeRentalService bikeService) {
+        this.bikeService = bikeService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                HandlerUtils.handleOptionsRequest(exchange);
+                return;
+            }
+            HandlerUtils.setCorsHeaders(exchange);
+
+            if ("GET".equals(exchange.getRequestMethod())) {
+                long[] range;
+                try {
+                    range = range(HandlerUtils.parseQuery(exchange));
+                } catch (IllegalArgumentException e) {
+                    HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", e.getMessage())));
+                    return;
+                }
+                List<BookingLedger.Rental> rentals =
+                        bikeService.getRentals(AuthFilter.principal(exchange), range[0], range[1], (int) range[2]);
+                HandlerUtils.sendJsonResponse(exchange, 200, gson.toJson(rentals));
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // {from, to, limit} from the query string; shared with BikeHistoryHandler
+    static long[] range(Map<String, String> query) {
+        try {
+            long from = query.containsKey("from") ? Long.parseLong(query.get("from")) : Long.MIN_VALUE;
+            long to = query.containsKey("to") ? Long.parseLong(query.get("to")) : Long.MAX_VALUE;
+            long limit = query.containsKey("limit") ? Long.parseLong(query.get("limit")) : DEFAULT_LIMIT;
+            if (from >= to) {
+                throw new IllegalArgumentException("from must be before to.");
+            }
+            if (limit < 1 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT + ".");
+            }
+            return new long[]{from, to, limit};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("from, to and limit must be numbers.");
+        }
+    }
+}
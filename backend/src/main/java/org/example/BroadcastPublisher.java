@@ -0,0 +1,196 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.java_websocket.WebSocket;
+
+// Takes change events off the request threads and sends them from one background thread.
+// Everything submitted within one window goes out as a single frame: a JSON array of events,
+// cut down per client to the topics it subscribed to (see Subscriptions).
+public class BroadcastPublisher {
+
+    private final long windowMillis;
+    private volatile Supplier<byte[]> snapshotSource;
+    private final EventJournal journal = new EventJournal(4096);
+    private final ArrayDeque<BikeEvent> pending = new ArrayDeque<>();
+    private volatile Thread thread;
+    private volatile BikeWebSocketServer webSocketServer;
+    private volatile boolean running = true;
+
+    // --- STATS (for tuning the window) ---
+    private volatile int lastBatchSize;
+    private volatile int maxBatchSize;
+    private volatile long batchesPublished;
+    private volatile long eventsPublished;
+    private final Histogram serializeTime = new Histogram();
+    private final Histogram fanOutTime = new Histogram();
+
+    public BroadcastPublisher(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    // Starts the publisher thread. Events submitted before this wait in the queue.
+    // snapshotSource gives the cached listing sent to clients too far behind for a replay.
+    public synchronized void start(Supplier<byte[]> snapshotSource) {
+        if (thread != null) {
+            throw new IllegalStateException("Publisher already started");
+        }
+        this.snapshotSource = snapshotSource;
+        Thread t = new Thread(this::run, "broadcast-publisher");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    public void setWebSocketServer(BikeWebSocketServer server) {
+        this.webSocketServer = server;
+    }
+
+    // Called on the request thread: only queues the event, never serializes or sends.
+    public synchronized void submit(BikeEvent event) {
+        pending.add(event);
+        if (pending.size() == 1) {
+            notify();
+        }
+    }
+
+    // Queues events that must reach clients together; they always end up in the same frame
+    public synchronized void submitAll(List<BikeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        boolean wasEmpty = pending.isEmpty();
+        pending.addAll(events);
+        if (wasEmpty) {
+            notify();
+        }
+    }
+
+    public synchronized int getQueueDepth() { return pending.size(); }
+    public int getLastBatchSize() { return lastBatchSize; }
+    public int getMaxBatchSize() { return maxBatchSize; }
+    public long getBatchesPublished() { return batchesPublished; }
+    public long getEventsPublished() { return eventsPublished; }
+    public long getWindowMillis() { return windowMillis; }
+    public Histogram getSerializeTime() { return serializeTime; }
+    public Histogram getFanOutTime() { return fanOutTime; }
+
+    public BikeWebSocketServer getWebSocketServer() {
+        return webSocketServer;
+    }
+
+    public int getConnectedClients() {
+        BikeWebSocketServer server = webSocketServer;
+        return server == null ? 0 : server.getConnectionCount();
+    }
+
+    public int getSubscribedTopics() {
+        BikeWebSocketServer server = webSocketServer;
+        return server == null ? 0 : server.getSubscriptions().getTopicCount();
+    }
+
+    // Sends a client everything after lastSeq: the missed deltas on its topics if the journal still
+    // has them, otherwise a full snapshot built from the cached listing. Holds the journal so no
+    // batch can be sent in between.
+    public void replaySince(long lastSeq, WebSocket conn) {
+        synchronized (journal) {
+            BikeWebSocketServer server = webSocketServer;
+            if (server != null) {
+                replay(server, lastSeq, conn);
+            }
+        }
+    }
+
+    // Brings a client the server stopped sending to (see WebSocketLimits) up to date from the last
+    // seq it was sent. Checked again under the journal, as the publisher may have got there first.
+    public boolean catchUp(WebSocket conn) {
+        synchronized (journal) {
+            BikeWebSocketServer server = webSocketServer;
+            if (server == null || !server.isBehind(conn)) {
+                return false;
+            }
+            replay(server, server.getLastSent(conn), conn);
+            return true;
+        }
+    }
+
+    // Under DROP and DISCONNECT: tells a client that drained while nothing was published which
+    // frames it lost, under the journal like a catch-up.
+    public void resumeAfterDrop(WebSocket conn) {
+        synchronized (journal) {
+            BikeWebSocketServer server = webSocketServer;
+            if (server != null) {
+                server.resumeAfterDrop(conn);
+            }
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        Thread t = thread;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    private void replay(BikeWebSocketServer server, long lastSeq, WebSocket conn) {
+        List<EventJournal.Entry> missed = journal.since(lastSeq);
+        if (missed == null) {
+            server.snapshot(conn, journal.getLastSeq(), snapshotSource.get());
+        } else {
+            server.replay(conn, missed);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                publish(nextBatch());
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("Broadcast publisher error: " + e.getMessage());
+            }
+        }
+    }
+
+    // Waits for the first event, then lets the window fill before taking everything queued.
+    private List<BikeEvent> nextBatch() throws InterruptedException {
+        synchronized (this) {
+            while (pending.isEmpty()) {
+                wait();
+            }
+        }
+        if (windowMillis > 0) {
+            Thread.sleep(windowMillis);
+        }
+        synchronized (this) {
+            List<BikeEvent> batch = new ArrayList<>(pending);
+            pending.clear();
+            return batch;
+        }
+    }
+
+    private void publish(List<BikeEvent> batch) {
+        synchronized (journal) {
+            long start = System.nanoTime();
+            List<EventJournal.Entry> encoded = new ArrayList<>(batch.size());
+            for (BikeEvent event : batch) {
+                encoded.add(journal.append(event));
+            }
+            long serialized = System.nanoTime();
+            serializeTime.observe(serialized - start);
+            BikeWebSocketServer server = webSocketServer;
+            if (server != null) {
+                server.publish(encoded);
+                fanOutTime.observeSince(serialized);
+            }
+        }
+        lastBatchSize = batch.size();
+        maxBatchSize = Math.max(maxBatchSize, batch.size());
+        batchesPublished++;
+        eventsPublished += batch.size();
+    }
+}
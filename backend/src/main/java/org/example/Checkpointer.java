@@ -0,0 +1,291 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Writes compacted snapshots of the service state next to the write-ahead log, and rebuilds the
+// state on startup from the newest intact snapshot plus the log records after it.
+//
+// A checkpoint rotates the log and, with appends held off, notes how many rows the booking ledger
+// has; that is the one thing that has to be exact. The ledger keeps its own rows on disk, so the
+// snapshot only records the count and recovery drops any rows past it before replaying the log. Bikes and users are then read while requests carry on, so
+// the snapshot can hold changes from just after the cut. Replay tolerates that: bike records only
+// apply over older versions, and users are only added if missing. Reservations are the same:
+// one already restored is left alone, and cancelling one that is not there does nothing.
+public class Checkpointer {
+
+    private static final int MAGIC = 0x42494B45; // "BIKE"
+    // Format 3 added reservations and format 4 bike positions; format 2 snapshots still load
+    private static final int FORMAT = 4;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+
+    private final BikeRentalService service;
+    private final WriteAheadLog wal;
+    private final Path dir;
+    private ScheduledExecutorService scheduler;
+
+    public Checkpointer(BikeRentalService service, WriteAheadLog wal, Path dir) {
+        if (!service.getLedger().isPersistent()) {
+            throw new IllegalArgumentException("Checkpoints need a booking ledger that is kept on disk");
+        }
+        this.service = service;
+        this.wal = wal;
+        this.dir = dir;
+    }
+
+    // Loads the newest snapshot that passes its checksum, replays the log after it and attaches
+    // the log to the service. Returns false when there was nothing to recover.
+    public boolean recover() throws IOException {
+        long start = System.nanoTime();
+        long afterLsn = 0;
+        int rentals = 0;
+        boolean found = false;
+        for (Path snapshot : snapshotsNewestFirst()) {
+            try {
+                long[] cut = load(snapshot);
+                afterLsn = cut[0];
+                rentals = (int) cut[1];
+                found = true;
+                break;
+            } catch (IOException e) {
+                System.err.println("Skipping unreadable snapshot " + snapshot.getFileName() + ": " + e.getMessage());
+            }
+        }
+
+        service.getLedger().restore(rentals);
+        long[] replayed = new long[1];
+        wal.recover(afterLsn, (lsn, record) -> {
+            apply(record);
+            replayed[0]++;
+        });
+        service.restored();
+        service.setWriteAheadLog(wal);
+
+        if (found || replayed[0] > 0) {
+            System.out.println("Recovered state at LSN " + wal.getLastLsn() + " (snapshot up to " + afterLsn
+                    + ", " + replayed[0] + " log records replayed) in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+        return found || replayed[0] > 0;
+    }
+
+    // Checks every checkIntervalSeconds and checkpoints once everyRecords changes have been logged.
+    public void startPeriodic(long everyRecords, long checkIntervalSeconds) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "checkpointer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (wal.getRecordsSinceRotate() >= everyRecords) {
+                    checkpoint();
+                }
+            } catch (Exception e) {
+                System.err.println("Checkpoint failed: " + e.getMessage());
+            }
+        }, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Writes a snapshot covering the log up to now, then drops the segments and older snapshots it replaces.
+    public synchronized long checkpoint() throws IOException {
+        int[] rentals = new int[1];
+        long lsn = wal.rotate(() -> rentals[0] = service.getLedger().size());
+        service.getLedger().force();
+
+        Path tmp = dir.resolve(PREFIX + String.format("%020d", lsn) + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(lsn);
+
+            Map<String, String> users = Map.copyOf(service.getUsers());
+            out.writeInt(users.size());
+            for (Map.Entry<String, String> user : users.entrySet()) {
+                WalRecords.writeString(out, user.getKey());
+                WalRecords.writeString(out, user.getValue());
+            }
+
+            List<Bike> bikes = service.getAllBikes();
+            List<Bike.State> states = new ArrayList<>(bikes.size());
+            bikes.forEach(bike -> states.add(bike.getState()));
+            out.writeInt(bikes.size());
+            for (int i = 0; i < bikes.size(); i++) {
+                WalRecords.writeBike(out, bikes.get(i));
+                WalRecords.writePosition(out, bikes.get(i));
+                writeState(out, states.get(i));
+            }
+
+            out.writeInt(rentals[0]);
+            out.writeInt(service.getBikeIdCounter());
+
+            ReservationBook book = service.getReservationBook();
+            List<ReservationBook.Reservation> reservations = book.upcoming(System.currentTimeMillis());
+            out.writeInt(reservations.size());
+            for (ReservationBook.Reservation reservation : reservations) {
+                WalRecords.writeReservation(out, reservation);
+            }
+            out.writeInt(book.getIdCounter());
+            out.flush();
+            // The trailer is not part of its own checksum
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(PREFIX + String.format("%020d", lsn) + SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        WriteAheadLog.syncDirectory(dir);
+
+        List<Path> snapshots = snapshotsNewestFirst();
+        for (Path old : snapshots.subList(1, snapshots.size())) {
+            Files.deleteIfExists(old);
+        }
+        wal.deleteSegmentsThrough(lsn);
+        return lsn;
+    }
+
+    // Restores users, bikes and reservations and returns {lsn, ledger rows} of the cut
+    private long[] load(Path snapshot) throws IOException {
+        long size = Files.size(snapshot);
+        if (size < 8) {
+            throw new EOFException("truncated");
+        }
+        CRC32 crc = new CRC32();
+        // Verified before anything is restored, so a damaged snapshot leaves no partial state behind
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+            byte[] chunk = new byte[1 << 16];
+            for (long remaining = size - 8; remaining > 0; ) {
+                int n = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                if (n < 0) {
+                    throw new EOFException("truncated");
+                }
+                crc.update(chunk, 0, n);
+                remaining -= n;
+            }
+            if (crc.getValue() != in.readLong()) {
+                throw new IOException("checksum mismatch");
+            }
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a snapshot");
+            }
+            int format = in.readInt();
+            if (format < 2 || format > FORMAT) {
+                throw new IOException("unknown snapshot format " + format);
+            }
+            long lsn = in.readLong();
+            for (int n = in.readInt(); n > 0; n--) {
+                service.restoreUser(WalRecords.readString(in), WalRecords.readString(in));
+            }
+            for (int n = in.readInt(); n > 0; n--) {
+                Bike bike = WalRecords.readBike(in);
+                if (format >= 4) {
+                    bike = WalRecords.readPosition(in, bike);
+                }
+                service.restoreBike(bike, readState(in));
+            }
+            int rentals = in.readInt();
+            service.restoreIdCounter(in.readInt());
+            if (format >= 3) {
+                for (int n = in.readInt(); n > 0; n--) {
+                    service.restoreReservation(WalRecords.readReservation(in));
+                }
+                service.restoreReservationIdCounter(in.readInt());
+            }
+            return new long[]{lsn, rentals};
+        }
+    }
+
+    private void apply(DataInputStream record) throws IOException {
+        byte type = WalRecords.readType(record);
+        switch (type) {
+            case WalRecords.USER_REGISTERED ->
+                    service.restoreUser(WalRecords.readString(record), WalRecords.readString(record));
+            case WalRecords.BIKE_LISTED -> {
+                Bike bike = WalRecords.readBike(record);
+                if (record.available() > 0) {
+                    bike = WalRecords.readPosition(record, bike);
+                }
+                service.restoreBike(bike, new Bike.State(Bike.AVAILABLE, null, 0));
+            }
+            case WalRecords.BIKE_BOOKED -> {
+                int bikeId = record.readInt();
+                String userId = WalRecords.readString(record);
+                long version = record.readLong();
+                long time = record.readLong();
+                service.restoreBooked(bikeId, userId, version, time, record.readDouble());
+            }
+            case WalRecords.BIKE_RETURNED -> {
+                int bikeId = record.readInt();
+                WalRecords.readString(record);
+                long version = record.readLong();
+                service.restoreReturned(bikeId, version, record.readLong());
+            }
+            case WalRecords.BIKE_REMOVED -> {
+                int bikeId = record.readInt();
+                service.restoreBikeState(bikeId, new Bike.State(Bike.REMOVED, null, record.readLong()));
+            }
+            case WalRecords.RESERVATION_MADE -> service.restoreReservation(WalRecords.readReservation(record));
+            case WalRecords.RESERVATION_CANCELLED -> service.restoreReservationCancelled(record.readInt());
+            case WalRecords.BATCH -> {
+                for (int n = record.readInt(); n > 0; n--) {
+                    byte[] nested = new byte[record.readInt()];
+                    record.readFully(nested);
+                    apply(new DataInputStream(new ByteArrayInputStream(nested)));
+                }
+            }
+            default -> throw new IOException("Unknown write-ahead log record type " + type);
+        }
+    }
+
+    private static void writeState(DataOutputStream out, Bike.State state) throws IOException {
+        out.writeByte(state.status());
+        WalRecords.writeString(out, state.bookedBy());
+        out.writeLong(state.version());
+    }
+
+    private static Bike.State readState(DataInputStream in) throws IOException {
+        return new Bike.State(in.readByte(), WalRecords.readString(in), in.readLong());
+    }
+
+    private List<Path> snapshotsNewestFirst() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().startsWith(PREFIX) && p.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(snapshots::add);
+        }
+        snapshots.sort((a, b) -> b.getFileName().toString().compareTo(a.getFileName().toString()));
+        return snapshots;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import io.jsonwebtoken.Claims;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Verified tokens and their claims, so a token seen before skips the signature check until its
+// exp. Keyed by the whole token string: only the exact bytes that passed verification can hit.
+// Bounded: when full, expired entries go first, then arbitrary ones.
+public class ClaimsCache {
+
+    private record Entry(Claims claims, long expiresAtMillis) {}
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // --- STATS ---
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ClaimsCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    // The cached claims, or null if the token was never verified or has expired since
+    public Claims get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            entries.remove(token, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.claims();
+    }
+
+    // Tokens without an exp are not cached: they would never leave on their own
+    public void put(String token, Claims claims) {
+        if (claims.getExpiration() == null) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(token, new Entry(claims, claims.getExpiration().getTime()));
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public int getSize() { return entries.size(); }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    // Drops every expired entry; if that frees less than a tenth of the room, drops arbitrary ones too
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAtMillis() <= now);
+        Iterator<String> it = entries.keySet().iterator();
+        for (int excess = entries.size() - maxEntries * 9 / 10; excess > 0 && it.hasNext(); excess--) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// A bit set over non-negative ints that many threads can set and clear at once without a lock.
+// Bits live in fixed-size pages that are only allocated once a bit in their range is set.
+public class ConcurrentBitSet {
+
+    private static final int WORDS_PER_PAGE = 1024; // 65536 bits
+    private static final int BITS_PER_PAGE = WORDS_PER_PAGE * 64;
+    private static final int PAGE_COUNT = (int) ((1L << 31) / BITS_PER_PAGE);
+
+    private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(PAGE_COUNT);
+
+    public void set(int bit) {
+        AtomicLongArray page = page(bit / BITS_PER_PAGE, true);
+        long mask = 1L << bit;
+        page.accumulateAndGet((bit % BITS_PER_PAGE) >>> 6, mask, (word, m) -> word | m);
+    }
+
+    public void clear(int bit) {
+        AtomicLongArray page = page(bit / BITS_PER_PAGE, false);
+        if (page != null) {
+            long mask = ~(1L << bit);
+            page.accumulateAndGet((bit % BITS_PER_PAGE) >>> 6, mask, (word, m) -> word & m);
+        }
+    }
+
+    public boolean get(int bit) {
+        AtomicLongArray page = page(bit / BITS_PER_PAGE, false);
+        return page != null && (page.get((bit % BITS_PER_PAGE) >>> 6) & (1L << bit)) != 0;
+    }
+
+    // The first set bit at or after fromIndex, or -1 if there is none.
+    public int nextSetBit(int fromIndex) {
+        for (int p = fromIndex / BITS_PER_PAGE; p < PAGE_COUNT; p++) {
+            AtomicLongArray page = pages.get(p);
+            if (page == null) {
+                fromIndex = (p + 1) * BITS_PER_PAGE;
+                continue;
+            }
+            int w = (fromIndex % BITS_PER_PAGE) >>> 6;
+            long word = page.get(w) & (-1L << fromIndex);
+            while (true) {
+                if (word != 0) {
+                    return p * BITS_PER_PAGE + w * 64 + Long.numberOfTrailingZeros(word);
+                }
+                if (++w == WORDS_PER_PAGE) {
+                    break;
+                }
+                word = page.get(w);
+            }
+            fromIndex = (p + 1) * BITS_PER_PAGE;
+        }
+        return -1;
+    }
+
+    private AtomicLongArray page(int index, boolean create) {
+        AtomicLongArray page = pages.get(index);
+        if (page == null && create) {
+            pages.compareAndSet(index, null, new AtomicLongArray(WORDS_PER_PAGE));
+            page = pages.get(index);
+        }
+        return page;
+    }
+}
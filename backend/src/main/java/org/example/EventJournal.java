@@ -0,0 +1,48 @@
+package org.example;
+
+import com.google.gson.Gson;
+import java.util.ArrayList;
+import java.util.List;
+
+// Numbers events and keeps the most recent ones, already encoded, in a fixed-size ring so clients can
+// catch up after a gap. Not thread-safe on its own; BroadcastPublisher owns it, and its publisher
+// thread appends and sends each batch holding the journal, as do resyncs and catch-ups, so seq
+// order is send order.
+public class EventJournal {
+
+    // One encoded event with the topics it is delivered on, see Subscriptions
+    public record Entry(long seq, String json, int bikeId, String location, String owner) {}
+
+    private final Gson gson = new Gson();
+    private final Entry[] ring;
+    private long lastSeq = 0;
+
+    public EventJournal(int capacity) {
+        this.ring = new Entry[capacity];
+    }
+
+    // Gives the event the next seq and returns it encoded, exactly as it will be replayed later.
+    public Entry append(BikeEvent event) {
+        long seq = ++lastSeq;
+        event.setSeq(seq);
+        Entry entry = new Entry(seq, gson.toJson(event), event.getBikeId(), event.getLocation(), event.getOwner());
+        ring[(int) (seq % ring.length)] = entry;
+        return entry;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    // Events after the given seq, or null if some of them have already been overwritten.
+    public List<Entry> since(long seq) {
+        if (seq < 0 || seq > lastSeq || lastSeq - seq > ring.length) {
+            return null;
+        }
+        List<Entry> missed = new ArrayList<>((int) (lastSeq - seq));
+        for (long s = seq + 1; s <= lastSeq; s++) {
+            missed.add(ring[(int) (s % ring.length)]);
+        }
+        return missed;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Secondary indexes over the inventory: owner -> ids, location -> ids, location -> available ids,
+// a bit per available bike id, and a grid of the available bikes that have a position.
+// Lets lookups touch only the bikes they return.
+public class FleetIndex {
+
+    private final Map<String, Set<Integer>> byOwner = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> byLocation = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> availableByLocation = new ConcurrentHashMap<>();
+    private final ConcurrentBitSet available = new ConcurrentBitSet();
+    private final GeoGrid nearby = GeoGrid.fromSystemProperties();
+    // Bikes from the FleetStore are views, a new object per lookup, so they are locked by id
+    private final Object[] locks = new Object[256];
+
+    public FleetIndex() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Brings the indexes in line with the bike's current state. Called after every transition.
+    // Locking the bike's id means two transitions of the same bike cannot apply their updates
+    // out of order, and the last call always sees the bike's latest state.
+    public void sync(Bike bike) {
+        synchronized (locks[bike.getId() & (locks.length - 1)]) {
+            int id = bike.getId();
+            int status = bike.getState().status();
+            if (status == Bike.REMOVED) {
+                ids(byOwner, bike.getOwner()).remove(id);
+                ids(byLocation, bike.getLocation()).remove(id);
+                ids(availableByLocation, bike.getLocation()).remove(id);
+                available.clear(id);
+                if (bike.hasPosition()) {
+                    nearby.remove(bike);
+                }
+                return;
+            }
+            ids(byOwner, bike.getOwner()).add(id);
+            ids(byLocation, bike.getLocation()).add(id);
+            if (status == Bike.AVAILABLE) {
+                available.set(id);
+                ids(availableByLocation, bike.getLocation()).add(id);
+                if (bike.hasPosition()) {
+                    nearby.add(bike);
+                }
+            } else {
+                available.clear(id);
+                ids(availableByLocation, bike.getLocation()).remove(id);
+                if (bike.hasPosition()) {
+                    nearby.remove(bike);
+                }
+            }
+        }
+    }
+
+    public Set<Integer> ownedBy(String owner) {
+        return byOwner.getOrDefault(owner, Collections.emptySet());
+    }
+
+    public Set<Integer> atLocation(String location) {
+        return byLocation.getOrDefault(location, Collections.emptySet());
+    }
+
+    public Set<Integer> availableAt(String location) {
+        return availableByLocation.getOrDefault(location, Collections.emptySet());
+    }
+
+    public ConcurrentBitSet available() {
+        return available;
+    }
+
+    public GeoGrid nearby() {
+        return nearby;
+    }
+
+    private static Set<Integer> ids(Map<String, Set<Integer>> index, String key) {
+        return index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet());
+    }
+}
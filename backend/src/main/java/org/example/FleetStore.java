@@ -0,0 +1,185 @@
+package org.example;
+
+import com.google.gson.annotations.JsonAdapter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// The inventory, one column per field instead of one object per bike. Bike ids are handed out
+// by a counter, so they are dense and double as row numbers: a lookup is two array reads, with
+// no boxed key, hash node or per-bike object. Rows live in fixed-size pages that are allocated
+// once an id in their range is listed, like ConcurrentBitSet's. Strings that repeat across the
+// fleet (model, location, owner, bookedBy) are stored as codes into per-column dictionaries;
+// contact numbers and photo references, close to one per bike and kept until the bike is
+// gone, are plain references.
+//
+// The state of a row is one long (see encode), so transitions are still a CAS on that bike
+// alone. The other columns are written once, before the state that makes the row visible, and
+// never change, so readers that see the state see the rest of the row too. A removed bike keeps
+// its row, marked REMOVED, and ids are never reused.
+//
+// get() hands out a short-lived Bike view of the row; views of the same bike are different
+// objects but read and update the same row.
+public class FleetStore {
+
+    private static final int ROWS_PER_PAGE = 8192;
+    private static final int PAGE_COUNT = (int) ((1L << 31) / ROWS_PER_PAGE);
+
+    private final AtomicReferenceArray<Page> pages = new AtomicReferenceArray<>(PAGE_COUNT);
+    private final StringDictionary models = new StringDictionary();
+    private final StringDictionary locations = new StringDictionary();
+    private final StringDictionary owners = new StringDictionary();
+    // bookedBy of the state column
+    private final StringDictionary users = new StringDictionary();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private static final class Page {
+        final int[] model = new int[ROWS_PER_PAGE];
+        final int[] location = new int[ROWS_PER_PAGE];
+        final int[] owner = new int[ROWS_PER_PAGE];
+        final String[] contact = new String[ROWS_PER_PAGE];
+        final String[] photo = new String[ROWS_PER_PAGE];
+        final int[] modelYear = new int[ROWS_PER_PAGE];
+        final double[] rentRate = new double[ROWS_PER_PAGE];
+        final double[] latitude = new double[ROWS_PER_PAGE];
+        final double[] longitude = new double[ROWS_PER_PAGE];
+        // 0 until the row is listed
+        final AtomicLongArray state = new AtomicLongArray(ROWS_PER_PAGE);
+    }
+
+    // The listed, not removed bike with this id, or null
+    public Bike get(int id) {
+        Page page = id < 0 ? null : pages.get(id / ROWS_PER_PAGE);
+        if (page == null) {
+            return null;
+        }
+        long state = page.state.get(id % ROWS_PER_PAGE);
+        return state == 0 || status(state) == Bike.REMOVED ? null : new Row(id, page);
+    }
+
+    // Copies a new bike, state included, into its row and returns the stored view of it. Rows are
+    // filled once, so this is a no-op returning null if the id has been listed before, even if
+    // since removed.
+    public Bike put(Bike bike) {
+        Bike.State state = bike.getState();
+        int id = bike.getId();
+        Page page = page(id);
+        int row = id % ROWS_PER_PAGE;
+        synchronized (page) {
+            if (page.state.get(row) != 0) {
+                return null;
+            }
+            page.model[row] = models.encode(bike.getModel());
+            page.location[row] = locations.encode(bike.getLocation());
+            page.owner[row] = owners.encode(bike.getOwner());
+            page.contact[row] = bike.getContactNumber();
+            page.photo[row] = bike.getPhotoUrl();
+            page.modelYear[row] = bike.getModelYear();
+            page.rentRate[row] = bike.getRentRate();
+            page.latitude[row] = bike.getLatitude();
+            page.longitude[row] = bike.getLongitude();
+            // Publishes the row
+            page.state.set(row, encode(state));
+        }
+        if (state.status() != Bike.REMOVED) {
+            size.incrementAndGet();
+        }
+        return new Row(id, page);
+    }
+
+    // Every listed bike, in id order
+    public List<Bike> all() {
+        List<Bike> result = new ArrayList<>(size.get());
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            Page page = pages.get(p);
+            if (page == null) {
+                continue;
+            }
+            for (int row = 0; row < ROWS_PER_PAGE; row++) {
+                long state = page.state.get(row);
+                if (state != 0 && status(state) != Bike.REMOVED) {
+                    result.add(new Row(p * ROWS_PER_PAGE + row, page));
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    // Distinct strings held by the dictionaries, across all columns
+    public int getDictionarySize() {
+        return models.size() + locations.size() + owners.size() + users.size();
+    }
+
+    private Page page(int id) {
+        int p = id / ROWS_PER_PAGE;
+        Page page = pages.get(p);
+        if (page == null) {
+            pages.compareAndSet(p, null, new Page());
+            page = pages.get(p);
+        }
+        return page;
+    }
+
+    // status + 1 in the top two bits, so a listed row is never 0; the code of bookedBy in the
+    // next 30; the version in the low 32, which allows four billion transitions per bike.
+    private long encode(Bike.State state) {
+        return ((long) (state.status() + 1) << 62)
+                | ((long) users.encode(state.bookedBy()) << 32)
+                | (state.version() & 0xFFFFFFFFL);
+    }
+
+    private Bike.State decode(long state) {
+        return new Bike.State(status(state), users.decode((int) (state >>> 32) & 0x3FFFFFFF), state & 0xFFFFFFFFL);
+    }
+
+    private static int status(long state) {
+        return (int) (state >>> 62) - 1;
+    }
+
+    // A bike as seen through its row. Everything is read from the columns; the fields it
+    // inherits from Bike stay unused. Gson looks the adapter up on the runtime class.
+    @JsonAdapter(Bike.Serializer.class)
+    private final class Row extends Bike {
+        private final Page page;
+        private final int row;
+
+        Row(int id, Page page) {
+            super(id);
+            this.page = page;
+            this.row = id % ROWS_PER_PAGE;
+        }
+
+        @Override public String getModel() { return models.decode(page.model[row]); }
+        @Override public String getLocation() { return locations.decode(page.location[row]); }
+        @Override public String getOwner() { return owners.decode(page.owner[row]); }
+        @Override public String getContactNumber() { return page.contact[row]; }
+        @Override public String getPhotoUrl() { return page.photo[row]; }
+        @Override public int getModelYear() { return page.modelYear[row]; }
+        @Override public double getRentRate() { return page.rentRate[row]; }
+        @Override public double getLatitude() { return page.latitude[row]; }
+        @Override public double getLongitude() { return page.longitude[row]; }
+        @Override public boolean isAvailable() { return status(page.state.get(row)) == AVAILABLE; }
+
+        @Override
+        State getState() {
+            return decode(page.state.get(row));
+        }
+
+        @Override
+        boolean compareAndSetState(State expected, State next) {
+            if (!page.state.compareAndSet(row, encode(expected), encode(next))) {
+                return false;
+            }
+            if (next.status() == REMOVED && expected.status() != REMOVED) {
+                size.decrementAndGet();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+// GET /api/bikes/free?start=&end=: bikes nobody has reserved for any part of [start, end), epoch
+// millis, in id order. Optional location narrows it down; limit and after page through it like
+// /api/bikes, with after=<id of the last bike received>.
+public class FreeBikesHandler implements HttpHandler {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private final BikeRentalService bikeService;
+    private final Gson gson = new Gson();
+
+    public FreeBikesHandler(BikeRentalService bikeService) {
+        this.bikeService = bikeService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                HandlerUtils.handleOptionsRequest(exchange);
+                return;
+            }
+            HandlerUtils.setCorsHeaders(exchange);
+
+            if ("GET".equals(exchange.getRequestMethod())) {
+                Map<String, String> query = HandlerUtils.parseQuery(exchange);
+                List<Bike> bikes;
+                try {
+                    if (!query.containsKey("start") || !query.containsKey("end")) {
+                        throw new IllegalArgumentException("start and end are required.");
+                    }
+                    long start = Long.parseLong(query.get("start"));
+                    long end = Long.parseLong(query.get("end"));
+                    int after = query.containsKey("after") ? Integer.parseInt(query.get("after")) : 0;
+                    int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_LIMIT;
+                    if (start >= end) {
+                        throw new IllegalArgumentException("start must be before end.");
+                    }
+                    if (limit < 1 || limit > MAX_LIMIT) {
+                        throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT + ".");
+                    }
+                    bikes = bikeService.getFreeBikes(query.get("location"), start, end, after, limit);
+                } catch (NumberFormatException e) {
+                    HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", "start, end, after and limit must be numbers.")));
+                    return;
+                } catch (IllegalArgumentException e) {
+                    HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", e.getMessage())));
+                    return;
+                }
+
+                HandlerUtils.streamJsonResponse(exchange, 200, out -> {
+                    out.beginArray();
+                    for (Bike bike : bikes) {
+                        Bike.Serializer.write(out, bike, null);
+                    }
+                    out.endArray();
+                });
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+// Available bikes that have a position, bucketed by a fixed grid of cellDegrees x cellDegrees cells.
+// A nearest-bikes search visits cells in rectangles growing around the point and stops as soon as
+// nothing outside the rectangle can be nearer than the k-th bike found, or inside the radius, so
+// it only touches the bikes around the point however large the fleet is. Near the poles the
+// rectangles widen to cover the same distance east-west. Cells do not wrap at the antimeridian.
+public class GeoGrid {
+
+    public record Hit(Bike bike, double distance) {}
+
+    private static final double EARTH_RADIUS = 6_371_000;
+    // Rows near the poles are searched as if they were at this latitude, to bound their width
+    private static final double MAX_LATITUDE = 85;
+
+    private final double cellDegrees;
+    private final double cellMeters;
+    private final int rows;
+    private final int cols;
+    private final Map<Long, Set<Integer>> cells = new ConcurrentHashMap<>();
+
+    public GeoGrid(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+        this.cellMeters = Math.toRadians(cellDegrees) * EARTH_RADIUS;
+        this.rows = (int) Math.ceil(180 / cellDegrees);
+        this.cols = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    // -Dgeo.cellDegrees, default 0.01 (about 1.1 km north-south)
+    public static GeoGrid fromSystemProperties() {
+        return new GeoGrid(Double.parseDouble(System.getProperty("geo.cellDegrees", "0.01")));
+    }
+
+    public void add(Bike bike) {
+        cells.computeIfAbsent(cell(bike), k -> ConcurrentHashMap.newKeySet()).add(bike.getId());
+    }
+
+    public void remove(Bike bike) {
+        Set<Integer> ids = cells.get(cell(bike));
+        if (ids != null) {
+            ids.remove(bike.getId());
+        }
+    }
+
+    // Up to `limit` bikes within `radius` meters, nearest first. Ids are resolved with `lookup` and
+    // kept only if `accept` says so, as the grid can trail a transition by an instant.
+    public List<Hit> nearest(double lat, double lon, double radius, int limit,
+                             IntFunction<Bike> lookup, Predicate<Bike> accept) {
+        int row0 = row(lat);
+        int col0 = col(lon);
+        // The worst of the best `limit` so far sits on top
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, 1024),
+                Comparator.comparingDouble(Hit::distance).reversed());
+        int previousHalfWidth = -1;
+        for (int r = 0; ; r++) {
+            int halfWidth = halfWidth(lat, r);
+            for (int row = Math.max(0, row0 - r); row <= Math.min(rows - 1, row0 + r); row++) {
+                if (Math.abs(row - row0) == r) {
+                    visit(row, col0 - halfWidth, col0 + halfWidth, lat, lon, radius, limit, lookup, accept, best);
+                } else {
+                    visit(row, col0 - halfWidth, col0 - previousHalfWidth - 1, lat, lon, radius, limit, lookup, accept, best);
+                    visit(row, col0 + previousHalfWidth + 1, col0 + halfWidth, lat, lon, radius, limit, lookup, accept, best);
+                }
+            }
+            previousHalfWidth = halfWidth;
+            // Anything not visited yet is at least this far from the point
+            double covered = r * cellMeters;
+            boolean wholeGrid = r >= rows && 2 * halfWidth + 1 >= cols;
+            if (covered >= radius || (best.size() == limit && best.peek().distance() <= covered) || wholeGrid) {
+                break;
+            }
+        }
+        List<Hit> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Hit::distance));
+        return result;
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    // Great-circle distance in meters
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private void visit(int row, int fromCol, int toCol, double lat, double lon, double radius, int limit,
+                       IntFunction<Bike> lookup, Predicate<Bike> accept, PriorityQueue<Hit> best) {
+        for (int col = Math.max(0, fromCol); col <= Math.min(cols - 1, toCol); col++) {
+            Set<Integer> ids = cells.getOrDefault(key(row, col), Collections.emptySet());
+            if (ids.isEmpty()) {
+                continue;
+            }
+            // Skip the cell when even its nearest corner or edge is too far
+            double nearest = distanceToCell(row, col, lat, lon);
+            if (nearest > radius || (best.size() == limit && nearest >= best.peek().distance())) {
+                continue;
+            }
+            for (Integer id : ids) {
+                Bike bike = lookup.apply(id);
+                if (bike == null || !accept.test(bike)) {
+                    continue;
+                }
+                double d = distance(lat, lon, bike.getLatitude(), bike.getLongitude());
+                if (d > radius || (best.size() == limit && d >= best.peek().distance())) {
+                    continue;
+                }
+                best.add(new Hit(bike, d));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+    }
+
+    // From the point to the nearest point of the cell, which is the point itself when inside it
+    private double distanceToCell(int row, int col, double lat, double lon) {
+        double south = row * cellDegrees - 90;
+        double west = col * cellDegrees - 180;
+        double nearestLat = Math.max(south, Math.min(south + cellDegrees, lat));
+        double nearestLon = Math.max(west, Math.min(west + cellDegrees, lon));
+        return distance(lat, lon, nearestLat, nearestLon);
+    }
+
+    // Columns either side of the point's cell that span r cells' worth of meters east-west, at
+    // the most poleward row of the rectangle, where a degree of longitude is shortest
+    private int halfWidth(double lat, int r) {
+        double poleward = Math.min(MAX_LATITUDE, Math.abs(lat) + (r + 1) * cellDegrees);
+        int halfWidth = (int) Math.ceil(r / Math.cos(Math.toRadians(poleward)));
+        return Math.min(halfWidth, cols);
+    }
+
+    private long cell(Bike bike) {
+        return key(row(bike.getLatitude()), col(bike.getLongitude()));
+    }
+
+    private int row(double lat) {
+        return Math.min(rows - 1, (int) ((lat + 90) / cellDegrees));
+    }
+
+    private int col(double lon) {
+        return Math.min(cols - 1, (int) ((lon + 180) / cellDegrees));
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | col;
+    }
+}
@@ -1,8 +1,18 @@
 package org.example;
 
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 public class HandlerUtils {
     public static void setCorsHeaders(HttpExchange exchange) {
@@ -11,12 +21,148 @@ public class HandlerUtils {
         exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type,Authorization");
     }
 
+    // Bodies smaller than this go out uncompressed: the CPU and header bytes are not worth it
+    private static final int COMPRESSION_THRESHOLD = Integer.getInteger("http.compressionThreshold", 1024);
+
     public static void sendJsonResponse(HttpExchange exchange, int statusCode, String jsonResponse) throws IOException {
+        sendJsonResponse(exchange, statusCode, jsonResponse.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 503 for work turned away at a full queue; the client may retry after the given delay
+    public static void sendBusyResponse(HttpExchange exchange, long retryAfterSeconds) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+        sendJsonResponse(exchange, 503, "{\"success\":false,\"message\":\"Server is busy, please retry shortly.\"}");
+    }
+
+    // For bodies that are already encoded, e.g. the cached inventory listing
+    public static void sendJsonResponse(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+        sendJsonResponse(exchange, statusCode, ByteBuffer.wrap(body));
+    }
+
+    public static void sendJsonResponse(HttpExchange exchange, int statusCode, ByteBuffer body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        int length = body.remaining();
+        String encoding = null;
+        if (length >= COMPRESSION_THRESHOLD) {
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            encoding = HttpCompression.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        }
+        if (encoding == null) {
+            exchange.sendResponseHeaders(statusCode, length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                write(os, body);
+            }
+            return;
+        }
+        byte[] compressed;
+        if (body.hasArray()) {
+            compressed = HttpCompression.compress(body.array(), body.arrayOffset() + body.position(), length, encoding);
+        } else {
+            byte[] copy = new byte[length];
+            body.duplicate().get(copy);
+            compressed = HttpCompression.compress(copy, encoding);
+        }
+        exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        exchange.sendResponseHeaders(statusCode, compressed.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(compressed);
+        }
+    }
+
+    // For callers that keep a gzip copy next to the plain bytes: gzip clients get it as is,
+    // so a cached body is never compressed twice.
+    public static void sendJsonResponse(HttpExchange exchange, int statusCode, byte[] plain, byte[] gzipped) throws IOException {
+        String encoding = plain.length >= COMPRESSION_THRESHOLD
+                ? HttpCompression.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"))
+                : null;
+        if (!HttpCompression.GZIP.equals(encoding)) {
+            sendJsonResponse(exchange, statusCode, plain);
+            return;
+        }
         exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, jsonResponse.getBytes().length);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        exchange.getResponseHeaders().set("Content-Encoding", HttpCompression.GZIP);
+        exchange.sendResponseHeaders(statusCode, gzipped.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(gzipped);
+        }
+    }
+
+    private static void write(OutputStream os, ByteBuffer body) throws IOException {
+        if (body.hasArray()) {
+            os.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            return;
+        }
+        ByteBuffer source = body.duplicate();
+        byte[] chunk = new byte[Math.min(source.remaining(), 8192)];
+        while (source.hasRemaining()) {
+            int n = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, n);
+            os.write(chunk, 0, n);
+        }
+    }
+
+    public interface JsonBody {
+        void writeTo(JsonWriter out) throws IOException;
+    }
+
+    // Writes the body as it is produced, with chunked transfer encoding, so the response
+    // never has to be built up in memory or have its length known in advance. Its size is
+    // unknown up front, so it is compressed whenever the client accepts it.
+    public static void streamJsonResponse(HttpExchange exchange, int statusCode, JsonBody body) throws IOException {
+        try (JsonWriter out = new JsonWriter(openStream(exchange, statusCode, "application/json"))) {
+            out.setSerializeNulls(false); // same as Gson.toJson
+            body.writeTo(out);
+        }
+    }
+
+    public interface JsonValue<T> {
+        void write(JsonWriter out, T value) throws IOException;
+    }
+
+    // Newline-delimited JSON, one value per line, streamed like streamJsonResponse as `values` yields them
+    public static <T> void streamNdjsonResponse(HttpExchange exchange, int statusCode, Iterator<T> values,
+                                                JsonValue<T> value) throws IOException {
+        Writer lines = openStream(exchange, statusCode, "application/x-ndjson");
+        try (JsonWriter out = new JsonWriter(lines)) {
+            out.setSerializeNulls(false);
+            out.setLenient(true); // one top-level value after another
+            while (values.hasNext()) {
+                value.write(out, values.next());
+                lines.write('\n');
+            }
+        }
+    }
+
+    private static Writer openStream(HttpExchange exchange, int statusCode, String contentType) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        String encoding = HttpCompression.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (encoding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(statusCode, 0);
         OutputStream os = exchange.getResponseBody();
-        os.write(jsonResponse.getBytes());
-        os.close();
+        if (encoding != null) {
+            os = HttpCompression.wrap(os, encoding);
+        }
+        return new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 8192);
+    }
+
+    // Query string as a map of decoded name -> value; the first value wins for repeated names.
+    public static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.putIfAbsent(name, value);
+        }
+        return params;
     }
 
     public static void handleOptionsRequest(HttpExchange exchange) throws IOException {
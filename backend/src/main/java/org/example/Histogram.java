@@ -0,0 +1,71 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram with fixed buckets, from 50us to 10s. Recording is a bucket scan and two
+// LongAdder increments, no allocation and no lock, so it can sit on any hot path.
+// Rendered by MetricsHandler in the Prometheus text format, with cumulative buckets in seconds.
+public class Histogram {
+
+    static final long[] BOUNDS_NANOS = {
+            50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000, 10_000_000, 25_000_000, 50_000_000,
+            100_000_000, 250_000_000, 500_000_000,
+            1_000_000_000, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    // The bounds as Prometheus "le" labels, in seconds
+    private static final String[] LE = new String[BOUNDS_NANOS.length + 1];
+    static {
+        for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+            LE[i] = BigDecimal.valueOf(BOUNDS_NANOS[i], 9).stripTrailingZeros().toPlainString();
+        }
+        LE[BOUNDS_NANOS.length] = "+Inf";
+    }
+
+    // One per bound, plus the overflow bucket
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void observe(long nanos) {
+        int i = 0;
+        while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sumNanos.add(nanos);
+    }
+
+    public void observeSince(long startNanos) {
+        observe(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    // name_bucket{labels,le="..."} lines, then name_sum and name_count; labels may be empty
+    void writeTo(StringBuilder out, String name, String labels) {
+        String prefix = labels.isEmpty() ? "{" : "{" + labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            out.append(name).append("_bucket").append(prefix).append("le=\"").append(LE[i]).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(suffix).append(' ').append(sumNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ').append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,79 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Content-Encoding negotiation and the gzip / deflate codecs behind it.
+public class HttpCompression {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    // Picks gzip or deflate from an Accept-Encoding header, honouring q-values; null means send as is.
+    // On a tie gzip wins, since every browser supports it and its framing is the less ambiguous of the two.
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double gzip = -1; // -1: not mentioned, falls back to "*"
+        double deflate = -1;
+        double any = 0;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            switch (coding) {
+                case GZIP, "x-gzip" -> gzip = Math.max(gzip, q);
+                case DEFLATE -> deflate = Math.max(deflate, q);
+                case "*" -> any = q;
+                default -> { }
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    public static OutputStream wrap(OutputStream out, String encoding) throws IOException {
+        return switch (encoding) {
+            case GZIP -> new GZIPOutputStream(out, 8192);
+            case DEFLATE -> new DeflaterOutputStream(out); // zlib-wrapped, which is what HTTP "deflate" means
+            default -> throw new IllegalArgumentException("Unsupported encoding " + encoding);
+        };
+    }
+
+    public static byte[] compress(byte[] data, int offset, int length, String encoding) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(length / 4 + 64);
+        try (OutputStream out = wrap(buffer, encoding)) {
+            out.write(data, offset, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen writing to memory
+        }
+        return buffer.toByteArray();
+    }
+
+    public static byte[] compress(byte[] data, String encoding) {
+        return compress(data, 0, data.length, encoding);
+    }
+}
@@ -0,0 +1,205 @@
+package org.example;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Where HTTP requests run, chosen at startup:
+// VIRTUAL - a virtual thread per request
+// POOL    - one fixed pool of platform threads for everything. Auth requests block a thread while
+//           their password is hashed, so at most http.threads.auth of them are admitted at a
+//           time: a login storm gets 503s instead of parking every thread ahead of bookings.
+// GROUPED - a fixed pool per handler group (auth, rental, read), so logins cannot starve bookings
+//
+// Every lane admits a bounded number of requests (running plus waiting). Past that, the request is
+// answered 503 with Retry-After straight away instead of queueing without limit.
+//
+// The lane is entered through its filter, which must come first on a context: the server's own
+// executor only runs that filter, and the rest of the chain, auth included, runs on the lane.
+public class HttpExecutors {
+
+    public enum Mode { VIRTUAL, POOL, GROUPED }
+
+    public static final String AUTH = "auth";
+    public static final String RENTAL = "rental";
+    public static final String READ = "read";
+
+    private final Mode mode;
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+    // POOL only: groups capped to a share of the one pool, admitted requests per group
+    private final Map<String, Semaphore> shares = new HashMap<>();
+
+    public HttpExecutors(Mode mode, Map<String, Integer> threads, int queueCapacity, int maxInFlight, int retryAfterSeconds) {
+        this.mode = mode;
+        switch (mode) {
+            case VIRTUAL -> lanes.put("all", new Lane("all",
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 0).factory()),
+                    maxInFlight, retryAfterSeconds));
+            case POOL -> {
+                int n = threads.values().stream().mapToInt(Integer::intValue).sum();
+                lanes.put("all", new Lane("all", Executors.newFixedThreadPool(n, named("http-")),
+                        n + queueCapacity, retryAfterSeconds));
+                shares.put(AUTH, new Semaphore(threads.get(AUTH)));
+            }
+            case GROUPED -> threads.forEach((group, n) -> lanes.put(group, new Lane(group,
+                    Executors.newFixedThreadPool(n, named("http-" + group + "-")), n + queueCapacity, retryAfterSeconds)));
+        }
+    }
+
+    // -Dhttp.executor=virtual|pool|grouped (default pool), -Dhttp.threads.{auth,rental,read},
+    // -Dhttp.queueCapacity (per pool), -Dhttp.maxInFlight (virtual), -Dhttp.retryAfterSeconds
+    public static HttpExecutors fromSystemProperties() {
+        Map<String, Integer> threads = new LinkedHashMap<>();
+        threads.put(AUTH, Integer.getInteger("http.threads.auth", 2));
+        threads.put(RENTAL, Integer.getInteger("http.threads.rental", 4));
+        threads.put(READ, Integer.getInteger("http.threads.read", 4));
+        return new HttpExecutors(
+                Mode.valueOf(System.getProperty("http.executor", "pool").toUpperCase()),
+                threads,
+                Integer.getInteger("http.queueCapacity", 100),
+                Integer.getInteger("http.maxInFlight", 1000),
+                Integer.getInteger("http.retryAfterSeconds", 1));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    // The filter that runs a context's requests on the lane for `group`
+    public Filter admit(String group) {
+        Lane lane = mode == Mode.GROUPED ? lanes.get(group) : lanes.get("all");
+        if (lane == null) {
+            throw new IllegalArgumentException("No executor group " + group);
+        }
+        Semaphore share = shares.get(group);
+        return share == null ? lane.filter : lane.filter(share);
+    }
+
+    public Collection<Lane> getLanes() {
+        return lanes.values();
+    }
+
+    public void shutdown() {
+        lanes.values().forEach(lane -> lane.executor.shutdown());
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> new Thread(r, prefix + n.incrementAndGet());
+    }
+
+    public static final class Lane {
+        private final String name;
+        private final ExecutorService executor;
+        private final int capacity;
+        private final Semaphore admitted;
+        private final int retryAfterSeconds;
+        private final Filter filter;
+
+        // --- STATS ---
+        private final LongAdder accepted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        // From admission to a thread picking the request up
+        private final Histogram queueWait = new Histogram();
+
+        Lane(String name, ExecutorService executor, int capacity, int retryAfterSeconds) {
+            this.name = name;
+            this.executor = executor;
+            this.capacity = capacity;
+            this.admitted = new Semaphore(capacity);
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.filter = filter(null);
+        }
+
+        // share, if not null, is an extra limit the request must also get a permit from
+        private Filter filter(Semaphore share) {
+            return new Filter() {
+                @Override
+                public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                    admit(exchange, chain, share);
+                }
+
+                @Override
+                public String description() {
+                    return "Runs the request on the " + name + " executor";
+                }
+            };
+        }
+
+        public String getName() { return name; }
+        public int getCapacity() { return capacity; }
+        public int getInFlight() { return capacity - admitted.availablePermits(); }
+        public long getAccepted() { return accepted.sum(); }
+        public long getRejected() { return rejected.sum(); }
+        public Histogram getQueueWait() { return queueWait; }
+
+        // Busy threads and requests waiting for one; a virtual lane never waits for a thread
+        public int getActive() {
+            return executor instanceof ThreadPoolExecutor pool ? pool.getActiveCount() : getInFlight();
+        }
+
+        public int getQueued() {
+            return executor instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+        }
+
+        private void admit(HttpExchange exchange, Filter.Chain chain, Semaphore share) throws IOException {
+            if (share != null && !share.tryAcquire()) {
+                reject(exchange);
+                return;
+            }
+            if (!admitted.tryAcquire()) {
+                release(share);
+                reject(exchange);
+                return;
+            }
+            long admittedAt = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    queueWait.observeSince(admittedAt);
+                    try {
+                        chain.doFilter(exchange);
+                    } catch (Exception e) {
+                        System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+                        exchange.close();
+                    } finally {
+                        admitted.release();
+                        release(share);
+                    }
+                });
+                accepted.increment();
+            } catch (RejectedExecutionException e) {
+                admitted.release();
+                release(share);
+                reject(exchange);
+            }
+        }
+
+        private static void release(Semaphore share) {
+            if (share != null) {
+                share.release();
+            }
+        }
+
+        private void reject(HttpExchange exchange) throws IOException {
+            rejected.increment();
+            try {
+                HandlerUtils.setCorsHeaders(exchange);
+                HandlerUtils.sendBusyResponse(exchange, retryAfterSeconds);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
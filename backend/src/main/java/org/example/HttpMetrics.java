@@ -0,0 +1,57 @@
+package org.example;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Request counts by status class and a latency histogram for every context, recorded by a filter
+// placed right after the executor's admission filter. The time therefore covers auth, rate limits
+// and the handler, but not the wait in the executor (see HttpExecutors.Lane) or 503s at admission.
+public class HttpMetrics {
+
+    public static final class Context {
+        final Histogram latency = new Histogram();
+        // Index 1 to 5 for 1xx to 5xx; 0 for exchanges closed without a response
+        final LongAdder[] byClass = new LongAdder[6];
+
+        Context() {
+            for (int i = 0; i < byClass.length; i++) {
+                byClass[i] = new LongAdder();
+            }
+        }
+    }
+
+    private final Map<String, Context> contexts = new LinkedHashMap<>();
+
+    // The filter for one context; call once per path while the server is being set up
+    public Filter filter(String path) {
+        Context context = new Context();
+        contexts.put(path, context);
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    chain.doFilter(exchange);
+                } finally {
+                    context.latency.observeSince(start);
+                    int status = exchange.getResponseCode() / 100;
+                    context.byClass[status >= 1 && status <= 5 ? status : 0].increment();
+                }
+            }
+
+            @Override
+            public String description() {
+                return "Request metrics for " + path;
+            }
+        };
+    }
+
+    Map<String, Context> getContexts() {
+        return Collections.unmodifiableMap(contexts);
+    }
+}
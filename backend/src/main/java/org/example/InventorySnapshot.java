@@ -0,0 +1,64 @@
+package org.example;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+
+// The full /api/bikes body, encoded once per inventory version and shared by every reader
+// until the next mutation. Reads far outnumber writes, so most requests never touch Gson.
+public class InventorySnapshot {
+
+    // Plain and gzip bytes of the listing at one version. The ETag carries a per-boot prefix
+    // so tags from before a restart, when versions started again at zero, never match.
+    public record Encoded(long version, String etag, byte[] plain, byte[] gzip) {}
+
+    private static final String BOOT_ID = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private volatile Encoded current;
+
+    // The listing of bikeService at its current inventory version
+    public Encoded current(BikeRentalService bikeService) {
+        long version = bikeService.getInventoryVersion();
+        Encoded cached = current;
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+        synchronized (this) {
+            // Whoever got here first for this version has already rebuilt it
+            cached = current;
+            if (cached == null || cached.version() != version) {
+                cached = encode(bikeService, version);
+                current = cached;
+            }
+            return cached;
+        }
+    }
+
+    // Every change bumps the version after it is applied, so the bikes read here include at
+    // least everything up to this version. Anything newer just means the next version rebuilds.
+    private static Encoded encode(BikeRentalService bikeService, long version) {
+        try {
+            ByteArrayOutputStream plain = new ByteArrayOutputStream(8192);
+            try (JsonWriter out = new JsonWriter(new OutputStreamWriter(plain, StandardCharsets.UTF_8))) {
+                out.setSerializeNulls(false);
+                out.beginArray();
+                Iterator<Bike> bikes = bikeService.queryBikes(new BikeQuery());
+                while (bikes.hasNext()) {
+                    Bike.Serializer.write(out, bikes.next(), null);
+                }
+                out.endArray();
+            }
+            byte[] plainBytes = plain.toByteArray();
+
+            byte[] gzipBytes = HttpCompression.compress(plainBytes, HttpCompression.GZIP);
+            return new Encoded(version, "\"" + BOOT_ID + "-" + version + "\"", plainBytes, gzipBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.example;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -13,6 +14,16 @@ public class JwtUtil {
 
     private static final long EXPIRATION_TIME = 1000 * 60 * 60;
 
+    // Immutable and thread-safe, so one parser serves every request
+    private static final JwtParser PARSER = Jwts.parserBuilder()
+            .setSigningKey(SECRET_KEY)
+            .build();
+
+    private static final ClaimsCache CACHE = new ClaimsCache(Integer.getInteger("auth.claimsCacheSize", 10_000));
+
+    // Cache hits and full checks alike
+    private static final Histogram VALIDATION_TIME = new Histogram();
+
     public static String generateToken(String username) {
         return Jwts.builder()
                 .setSubject(username)
@@ -23,15 +34,33 @@ public class JwtUtil {
     }
 
     public static Claims validateToken(String token) {
+        long start = System.nanoTime();
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(SECRET_KEY)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims cached = CACHE.get(token);
+            if (cached != null) {
+                return cached;
+            }
+            Claims claims = verify(token);
+            CACHE.put(token, claims);
+            return claims;
         } catch (Exception e) {
             // Token is invalid
             return null;
+        } finally {
+            VALIDATION_TIME.observeSince(start);
         }
     }
-}
\ No newline at end of file
+
+    // The full signature and expiry check, without the cache; throws if the token is not valid
+    static Claims verify(String token) {
+        return PARSER.parseClaimsJws(token).getBody();
+    }
+
+    public static ClaimsCache getClaimsCache() {
+        return CACHE;
+    }
+
+    public static Histogram getValidationTime() {
+        return VALIDATION_TIME;
+    }
+}
@@ -3,7 +3,6 @@ package org.example;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import io.jsonwebtoken.Claims;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Map;
@@ -27,37 +26,22 @@ public class ListBikeHandler implements HttpHandler {
             HandlerUtils.setCorsHeaders(exchange);
 
             if ("POST".equals(exchange.getRequestMethod())) {
-                String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
-                if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                    HandlerUtils.sendJsonResponse(exchange, 401, gson.toJson(Map.of("success", false, "message", "Missing token.")));
-                    return;
-                }
-                Claims claims = JwtUtil.validateToken(authHeader.substring(7));
-                if (claims == null) {
-                    HandlerUtils.sendJsonResponse(exchange, 401, gson.toJson(Map.of("success", false, "message", "Invalid token.")));
-                    return;
-                }
-                String username = claims.getSubject();
+                String username = AuthFilter.principal(exchange);
 
                 InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), "utf-8");
 
                 Map<String, Object> requestBody = gson.fromJson(isr, Map.class);
 
-                String model = (String) requestBody.get("model");
-                String location = (String) requestBody.get("location");
-                String contactNumber = (String) requestBody.get("contactNumber");
-                String photoUrl = (String) requestBody.get("photoUrl");
-
-                int modelYear = ((Double) requestBody.get("modelYear")).intValue();
-                double rentRate = (Double) requestBody.get("rentRate");
-
-                if (model == null || location == null || model.isEmpty() || location.isEmpty()) {
-                    HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", "Model and location are required.")));
+                BikeRentalService.NewBike bike;
+                try {
+                    bike = toNewBike(requestBody);
+                } catch (IllegalArgumentException e) {
+                    HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", e.getMessage())));
                     return;
                 }
 
-                Bike newBike = bikeService.listBike(model, location, username,
-                        modelYear, rentRate, contactNumber, photoUrl);
+                Bike newBike = bikeService.listBike(bike.model(), bike.location(), username, bike.modelYear(),
+                        bike.rentRate(), bike.contactNumber(), bike.photoUrl(), bike.latitude(), bike.longitude());
 
                 HandlerUtils.sendJsonResponse(exchange, 201, gson.toJson(newBike));
 
@@ -71,4 +55,36 @@ public class ListBikeHandler implements HttpHandler {
             exchange.close();
         }
     }
+
+    // Checks a listing body; shared with BikeImportHandler, which gets one per line
+    static BikeRentalService.NewBike toNewBike(Map<String, Object> body) {
+        if (body == null) {
+            throw new IllegalArgumentException("Model and location are required.");
+        }
+        String model = (String) body.get("model");
+        String location = (String) body.get("location");
+        if (model == null || location == null || model.isEmpty() || location.isEmpty()) {
+            throw new IllegalArgumentException("Model and location are required.");
+        }
+        if (!(body.get("modelYear") instanceof Double modelYear) || !(body.get("rentRate") instanceof Double rentRate)) {
+            throw new IllegalArgumentException("modelYear and rentRate are required numbers.");
+        }
+
+        // Optional, but both or neither
+        Object latitude = body.get("latitude");
+        Object longitude = body.get("longitude");
+        if ((latitude == null) != (longitude == null)) {
+            throw new IllegalArgumentException("latitude and longitude go together.");
+        }
+        if (latitude != null && !(latitude instanceof Double && longitude instanceof Double)) {
+            throw new IllegalArgumentException("latitude and longitude must be numbers.");
+        }
+        double lat = latitude == null ? Double.NaN : (Double) latitude;
+        double lon = longitude == null ? Double.NaN : (Double) longitude;
+        if (latitude != null && (Math.abs(lat) > 90 || Math.abs(lon) > 180)) {
+            throw new IllegalArgumentException("latitude must be within 90 and longitude within 180 degrees.");
+        }
+        return new BikeRentalService.NewBike(model, location, modelYear.intValue(), rentRate,
+                (String) body.get("contactNumber"), (String) body.get("photoUrl"), lat, lon);
+    }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 public class LoginHandler implements HttpHandler {
 
@@ -34,6 +35,15 @@ public class LoginHandler implements HttpHandler {
                     String username = requestBody.get("username");
                     String password = requestBody.get("password");
 
+                    // Too many recent failures for this name: turned away before any hashing
+                    long retryAfter = bikeService.loginRetryAfterSeconds(username);
+                    if (retryAfter > 0) {
+                        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+                        String jsonResponse = gson.toJson(Map.of("success", false, "message", "Too many failed attempts, try again later."));
+                        HandlerUtils.sendJsonResponse(exchange, 429, jsonResponse);
+                        return;
+                    }
+
                     boolean success = bikeService.login(username, password);
 
                     if (success) {
@@ -50,6 +60,8 @@ public class LoginHandler implements HttpHandler {
                         String jsonResponse = gson.toJson(Map.of("success", false, "message", "Invalid username or password."));
                         HandlerUtils.sendJsonResponse(exchange, 401, jsonResponse);
                     }
+                } catch (RejectedExecutionException e) {
+                    HandlerUtils.sendBusyResponse(exchange, 1);
                 } catch (Exception e) {
                     String jsonResponse = gson.toJson(Map.of("success", false, "message", "Error processing request: " + e.getMessage()));
                     HandlerUtils.sendJsonResponse(exchange, 500, jsonResponse);
@@ -0,0 +1,77 @@
+package org.example;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Recent failed logins per username. Once a name has failed maxFailures times inside the window,
+// further attempts are turned away without hashing until the window runs out, so a burst of
+// guesses against one account costs a map lookup instead of a PBKDF2 run each.
+// A successful login clears the name. Bounded like ClaimsCache: expired entries go first.
+public class LoginThrottle {
+
+    private record Entry(int failures, long windowEndsAtMillis) {}
+
+    private final int maxFailures;
+    private final long windowMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // --- STATS ---
+    private final LongAdder throttled = new LongAdder();
+
+    public LoginThrottle(int maxFailures, long windowMillis, int maxEntries) {
+        this.maxFailures = maxFailures;
+        this.windowMillis = windowMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    // -Dauth.maxFailures (default 5), -Dauth.failureWindowSeconds (default 60)
+    public static LoginThrottle fromSystemProperties() {
+        return new LoginThrottle(Integer.getInteger("auth.maxFailures", 5),
+                Long.getLong("auth.failureWindowSeconds", 60) * 1000, 100_000);
+    }
+
+    // Seconds until username may try again, or 0 if it may try now
+    public long retryAfterSeconds(String username) {
+        Entry entry = entries.get(username);
+        if (entry == null || entry.failures() < maxFailures) {
+            return 0;
+        }
+        long remaining = entry.windowEndsAtMillis() - System.currentTimeMillis();
+        if (remaining <= 0) {
+            entries.remove(username, entry);
+            return 0;
+        }
+        throttled.increment();
+        return (remaining + 999) / 1000;
+    }
+
+    public void failed(String username) {
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        long now = System.currentTimeMillis();
+        entries.compute(username, (name, entry) -> entry == null || entry.windowEndsAtMillis() <= now
+                ? new Entry(1, now + windowMillis)
+                : new Entry(entry.failures() + 1, entry.windowEndsAtMillis()));
+    }
+
+    public void succeeded(String username) {
+        entries.remove(username);
+    }
+
+    public long getThrottled() { return throttled.sum(); }
+    public int getSize() { return entries.size(); }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.windowEndsAtMillis() <= now);
+        Iterator<String> it = entries.keySet().iterator();
+        for (int excess = entries.size() - maxEntries * 9 / 10; excess > 0 && it.hasNext(); excess--) {
+            it.next();
+            it.remove();
+        }
+    }
+}
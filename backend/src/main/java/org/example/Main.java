@@ -1,10 +1,12 @@
 package org.example;
 
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.nio.file.Path;
+import java.util.List;
 
 public class Main {
 
@@ -12,30 +14,116 @@ public class Main {
         int httpPort = 8080;
         int wsPort = 8081;
 
-        BikeRentalService bikeService = new BikeRentalService();
-        bikeService.initializeBikes();
+        // How long the broadcast publisher collects changes before sending them as one frame
+        long broadcastWindowMs = Long.getLong("broadcast.windowMs", 20);
 
-        HttpServer httpServer = HttpServer.create(new InetSocketAddress("0.0.0.0", httpPort), 0);
+        // Photos are kept on disk, one file per distinct image, and served from /api/photos/
+        PhotoStore photoStore = new PhotoStore(Path.of(System.getProperty("photo.dir", "photos")));
 
-        ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(10);
-        httpServer.setExecutor(threadPoolExecutor);
+        // Every change goes to a write-ahead log before it is acknowledged, and is compacted into
+        // snapshots now and then. On startup the newest snapshot is loaded and the log after it replayed.
+        // The rental history is kept next to it in the booking ledger's own segment files.
+        Path dataDir = Path.of(System.getProperty("wal.dir", "data"));
+        BookingLedger ledger = new BookingLedger(dataDir);
+        BikeRentalService bikeService = new BikeRentalService(broadcastWindowMs, photoStore, ledger);
+        bikeService.start();
+        WriteAheadLog.FsyncPolicy fsyncPolicy = WriteAheadLog.FsyncPolicy.valueOf(
+                System.getProperty("wal.fsync", "group").toUpperCase());
+        WriteAheadLog wal = new WriteAheadLog(dataDir, fsyncPolicy, Long.getLong("wal.fsyncIntervalMs", 100));
+        Checkpointer checkpointer = new Checkpointer(bikeService, wal, dataDir);
+        if (!checkpointer.recover()) {
+            bikeService.initializeBikes();
+        }
+        checkpointer.startPeriodic(Long.getLong("wal.checkpointEveryRecords", 100_000),
+                Long.getLong("wal.checkpointCheckSeconds", 30));
 
-        httpServer.createContext("/api/bikes", new BikesHandler(bikeService));
-        httpServer.createContext("/api/book", new BookHandler(bikeService));
-        httpServer.createContext("/api/return", new ReturnHandler(bikeService));
-        httpServer.createContext("/api/login", new LoginHandler(bikeService));
-        httpServer.createContext("/api/register", new RegisterHandler(bikeService));
-        httpServer.createContext("/api/list-bike", new ListBikeHandler(bikeService));
-        httpServer.createContext("/api/my-bikes", new MyBikesHandler(bikeService));
-        httpServer.createContext("/api/remove-bike", new RemoveBikeHandler(bikeService));
+        // -Dhttp.executor picks where requests run; see HttpExecutors
+        HttpExecutors executors = HttpExecutors.fromSystemProperties();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                executors.shutdown();
+                wal.close();
+                ledger.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the write-ahead log or ledger: " + e.getMessage());
+            }
+        }));
+
+        HttpServer httpServer = createHttpServer(new InetSocketAddress("0.0.0.0", httpPort), bikeService, photoStore, executors);
 
         httpServer.start(); // <-- Start HTTP server
         System.out.println("HTTP server started on port " + httpPort + " (listening on all interfaces)");
 
 
-        BikeWebSocketServer webSocketServer = new BikeWebSocketServer(new InetSocketAddress("0.0.0.0", wsPort));
+        BikeWebSocketServer webSocketServer = new BikeWebSocketServer(new InetSocketAddress("0.0.0.0", wsPort), bikeService);
         webSocketServer.start();
 
         bikeService.setWebSocketServer(webSocketServer);
     }
+
+    // Every context enters its executor group first, so that auth and the handler run there and
+    // not on the server's dispatcher thread, which only accepts and hands off requests.
+    // photoStore may be null, in which case photos are not served.
+    public static HttpServer createHttpServer(InetSocketAddress address, BikeRentalService bikeService,
+                                              PhotoStore photoStore, HttpExecutors executors) throws IOException {
+        // Responses go out as headers then body; without TCP_NODELAY the body waits on the
+        // client's delayed ACK, ~40ms per request. Read once, when the first server is created.
+        System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
+        HttpServer httpServer = HttpServer.create(address, 0);
+
+        // Contexts behind the filter only run for a valid bearer token; see AuthFilter.principal
+        AuthFilter auth = new AuthFilter();
+        // Per-client token buckets on the mutations, after auth so they key on the user;
+        // override with -Dratelimit.<name>=<burst>/<perSecond>
+        List<RateLimiter> limiters = List.of(
+                RateLimiter.fromSystemProperties("book", 20, 2),
+                RateLimiter.fromSystemProperties("return", 20, 2),
+                RateLimiter.fromSystemProperties("list-bike", 10, 0.5),
+                RateLimiter.fromSystemProperties("register", 5, 0.1),
+                RateLimiter.fromSystemProperties("reserve", 20, 2),
+                RateLimiter.fromSystemProperties("batch", 10, 1),
+                RateLimiter.fromSystemProperties("import", 2, 0.1));
+        Filter bookLimit = limiters.get(0).filter();
+        Filter returnLimit = limiters.get(1).filter();
+        Filter listLimit = limiters.get(2).filter();
+        Filter registerLimit = limiters.get(3).filter();
+        Filter reserveLimit = limiters.get(4).filter();
+        Filter batchLimit = limiters.get(5).filter();
+        Filter importLimit = limiters.get(6).filter();
+
+        HttpMetrics metrics = new HttpMetrics();
+        Contexts contexts = new Contexts(httpServer, executors, metrics);
+        contexts.add(HttpExecutors.READ, "/api/bikes", new BikesHandler(bikeService));
+        contexts.add(HttpExecutors.READ, "/api/bikes/", new BikeHistoryHandler(bikeService), auth);
+        contexts.add(HttpExecutors.READ, "/api/bikes/free", new FreeBikesHandler(bikeService));
+        contexts.add(HttpExecutors.READ, "/api/bikes/nearby", new NearbyBikesHandler(bikeService));
+        contexts.add(HttpExecutors.READ, "/api/bikes/export", new BikeExportHandler(bikeService));
+        contexts.add(HttpExecutors.RENTAL, "/api/bikes/import", new BikeImportHandler(bikeService), auth, importLimit);
+        contexts.add(HttpExecutors.READ, "/api/bookings", new BookingsHandler(bikeService), auth);
+        contexts.add(HttpExecutors.RENTAL, "/api/book", new BookHandler(bikeService), auth, bookLimit);
+        contexts.add(HttpExecutors.RENTAL, "/api/return", new ReturnHandler(bikeService), auth, returnLimit);
+        contexts.add(HttpExecutors.RENTAL, "/api/batch", new BatchHandler(bikeService), auth, batchLimit);
+        contexts.add(HttpExecutors.RENTAL, "/api/reservations", new ReservationsHandler(bikeService), auth, reserveLimit);
+        contexts.add(HttpExecutors.AUTH, "/api/login", new LoginHandler(bikeService));
+        contexts.add(HttpExecutors.AUTH, "/api/register", new RegisterHandler(bikeService), registerLimit);
+        contexts.add(HttpExecutors.RENTAL, "/api/list-bike", new ListBikeHandler(bikeService), auth, listLimit);
+        contexts.add(HttpExecutors.READ, "/api/my-bikes", new MyBikesHandler(bikeService), auth);
+        contexts.add(HttpExecutors.RENTAL, "/api/remove-bike", new RemoveBikeHandler(bikeService), auth);
+        if (photoStore != null) {
+            contexts.add(HttpExecutors.READ, PhotoStore.URL_PREFIX, new PhotoHandler(photoStore));
+        }
+        // Prometheus scrape target: counters and timings only, nothing about users
+        contexts.add(HttpExecutors.READ, "/api/metrics", new MetricsHandler(bikeService, executors, metrics, limiters));
+        return httpServer;
+    }
+
+    // Each context: its executor group's admission filter, its request metrics, then its own filters
+    private record Contexts(HttpServer server, HttpExecutors executors, HttpMetrics metrics) {
+        void add(String group, String path, HttpHandler handler, Filter... filters) {
+            List<Filter> chain = server.createContext(path, handler).getFilters();
+            chain.add(executors.admit(group));
+            chain.add(metrics.filter(path));
+            chain.addAll(List.of(filters));
+        }
+    }
 }
\ No newline at end of file
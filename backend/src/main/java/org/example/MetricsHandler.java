@@ -0,0 +1,165 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+// GET /api/metrics: everything the components count and time, in the Prometheus text format.
+// Nothing is computed until a scrape; the components only bump their own counters and histograms.
+public class MetricsHandler implements HttpHandler {
+
+    private static final String[] STATUS_CLASSES = {"none", "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final BikeRentalService bikeService;
+    private final HttpExecutors executors;
+    private final HttpMetrics httpMetrics;
+    private final List<RateLimiter> limiters;
+
+    public MetricsHandler(BikeRentalService bikeService, HttpExecutors executors, HttpMetrics httpMetrics,
+                          List<RateLimiter> limiters) {
+        this.bikeService = bikeService;
+        this.executors = executors;
+        this.httpMetrics = httpMetrics;
+        this.limiters = limiters;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    String render() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+
+        // --- HTTP ---
+        family(out, "http_requests_total", "counter", "Requests per context by status class");
+        for (Map.Entry<String, HttpMetrics.Context> context : httpMetrics.getContexts().entrySet()) {
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                long count = context.getValue().byClass[i].sum();
+                if (count > 0) {
+                    sample(out, "http_requests_total", "context=\"" + context.getKey() + "\",status=\"" + STATUS_CLASSES[i] + "\"", count);
+                }
+            }
+        }
+        family(out, "http_request_duration_seconds", "histogram", "Time from the executor picking a request up to its response");
+        httpMetrics.getContexts().forEach((path, context) ->
+                context.latency.writeTo(out, "http_request_duration_seconds", "context=\"" + path + "\""));
+
+        // --- EXECUTORS ---
+        family(out, "http_executor_active", "gauge", "Requests being handled per executor lane");
+        executors.getLanes().forEach(lane -> sample(out, "http_executor_active", lane(lane), lane.getActive()));
+        family(out, "http_executor_queued", "gauge", "Requests admitted and waiting for a thread");
+        executors.getLanes().forEach(lane -> sample(out, "http_executor_queued", lane(lane), lane.getQueued()));
+        family(out, "http_executor_capacity", "gauge", "Requests a lane admits before answering 503");
+        executors.getLanes().forEach(lane -> sample(out, "http_executor_capacity", lane(lane), lane.getCapacity()));
+        family(out, "http_executor_rejected_total", "counter", "Requests answered 503 at admission");
+        executors.getLanes().forEach(lane -> sample(out, "http_executor_rejected_total", lane(lane), lane.getRejected()));
+        family(out, "http_executor_queue_wait_seconds", "histogram", "Time from admission to a thread picking the request up");
+        executors.getLanes().forEach(lane -> lane.getQueueWait().writeTo(out, "http_executor_queue_wait_seconds", lane(lane)));
+
+        // --- AUTH ---
+        PasswordHasher hasher = bikeService.getPasswordHasher();
+        gauge(out, "password_hash_active", "Password hashes being computed", hasher.getActive());
+        gauge(out, "password_hash_queued", "Password hashes waiting for the hashing pool", hasher.getQueued());
+        counter(out, "password_hashes_total", "Password hashes computed", hasher.getHashes());
+        counter(out, "password_hash_rejected_total", "Logins and registrations turned away by a full hashing pool", hasher.getRejected());
+        counter(out, "login_throttled_total", "Logins refused after repeated failures", bikeService.getLoginThrottle().getThrottled());
+        family(out, "jwt_validation_duration_seconds", "histogram", "Bearer token validation, cached or not");
+        JwtUtil.getValidationTime().writeTo(out, "jwt_validation_duration_seconds", "");
+        ClaimsCache cache = JwtUtil.getClaimsCache();
+        counter(out, "jwt_claims_cache_hits_total", "Tokens validated from the claims cache", cache.getHits());
+        counter(out, "jwt_claims_cache_misses_total", "Tokens that needed a signature check", cache.getMisses());
+        gauge(out, "jwt_claims_cache_size", "Tokens in the claims cache", cache.getSize());
+        family(out, "rate_limit_limited_total", "counter", "Requests answered 429 per endpoint");
+        limiters.forEach(l -> sample(out, "rate_limit_limited_total", "endpoint=\"" + l.getName() + "\"", l.getLimited()));
+        family(out, "rate_limit_buckets", "gauge", "Clients with a live token bucket per endpoint");
+        limiters.forEach(l -> sample(out, "rate_limit_buckets", "endpoint=\"" + l.getName() + "\"", l.getBuckets()));
+
+        // --- WRITE-AHEAD LOG ---
+        // Every mutation appends under the log's write lock, which is where they queue behind each other
+        WriteAheadLog wal = bikeService.getWriteAheadLog();
+        if (wal != null) {
+            family(out, "wal_lock_wait_seconds", "histogram", "Time mutations wait for the write-ahead log lock");
+            wal.getLockWait().writeTo(out, "wal_lock_wait_seconds", "");
+            family(out, "wal_lock_hold_seconds", "histogram", "Time mutations hold the write-ahead log lock");
+            wal.getLockHold().writeTo(out, "wal_lock_hold_seconds", "");
+            family(out, "wal_fsync_duration_seconds", "histogram", "Time per write-ahead log fsync");
+            wal.getFsyncTime().writeTo(out, "wal_fsync_duration_seconds", "");
+            counter(out, "wal_fsyncs_total", "Write-ahead log fsyncs", wal.getFsyncCount());
+            gauge(out, "wal_last_lsn", "Last record written", wal.getLastLsn());
+            gauge(out, "wal_durable_lsn", "Last record known to be on disk", wal.getDurableLsn());
+            gauge(out, "wal_failed", "1 once a write or fsync failed and the log refuses appends", wal.isFailed() ? 1 : 0);
+        }
+
+        // --- BROADCAST ---
+        BroadcastPublisher publisher = bikeService.getPublisher();
+        gauge(out, "websocket_clients", "Connected WebSocket clients", publisher.getConnectedClients());
+        gauge(out, "websocket_subscription_topics", "Topics with at least one subscribed client", publisher.getSubscribedTopics());
+        BikeWebSocketServer server = publisher.getWebSocketServer();
+        if (server != null) {
+            gauge(out, "websocket_queued_bytes", "Bytes waiting in all clients' outgoing buffers", server.getQueuedBytes());
+            gauge(out, "websocket_queued_bytes_max", "Bytes waiting in the fullest client buffer", server.getMaxQueuedBytes());
+            gauge(out, "websocket_clients_behind", "Clients whose frames are being dropped", server.getClientsBehind());
+            counter(out, "websocket_frames_dropped_total", "Frames not sent to a client over its buffer limit", server.getFramesDropped());
+            counter(out, "websocket_catchups_total", "Clients caught up from the journal or a snapshot after a stall", server.getCatchUps());
+            counter(out, "websocket_slow_disconnects_total", "Clients closed for staying over the buffer limit", server.getSlowDisconnects());
+            counter(out, "websocket_dead_evictions_total", "Clients closed for not answering pings", server.getDeadEvictions());
+            counter(out, "websocket_messages_ignored_total", "Client requests ignored while over the buffer limit", server.getMessagesIgnored());
+        }
+        gauge(out, "broadcast_queue_depth", "Events waiting for the next broadcast window", publisher.getQueueDepth());
+        counter(out, "broadcast_batches_total", "Frames broadcast", publisher.getBatchesPublished());
+        counter(out, "broadcast_events_total", "Events broadcast", publisher.getEventsPublished());
+        family(out, "broadcast_serialize_seconds", "histogram", "Time to encode one batch of events");
+        publisher.getSerializeTime().writeTo(out, "broadcast_serialize_seconds", "");
+        family(out, "broadcast_fanout_seconds", "histogram", "Time to build the frames of one batch and hand them to subscribed clients");
+        publisher.getFanOutTime().writeTo(out, "broadcast_fanout_seconds", "");
+
+        // --- INVENTORY ---
+        gauge(out, "inventory_version", "Inventory changes since startup", bikeService.getInventoryVersion());
+        gauge(out, "ledger_rentals", "Rentals in the booking ledger", bikeService.getLedger().size());
+        gauge(out, "fleet_dictionary_strings", "Distinct strings held by the inventory's column dictionaries", bikeService.getFleetDictionarySize());
+        gauge(out, "geo_grid_cells", "Grid cells that have held an available bike with a position", bikeService.getNearbyCellCount());
+        gauge(out, "reservations", "Reservations not yet ended or cancelled, or ended and not yet dropped", bikeService.getReservationBook().size());
+        return out.toString();
+    }
+
+    private static String lane(HttpExecutors.Lane lane) {
+        return "lane=\"" + lane.getName() + "\"";
+    }
+
+    private static void family(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        family(out, name, "gauge", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        family(out, name, "counter", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -3,7 +3,6 @@ package org.example;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import io.jsonwebtoken.Claims;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
@@ -27,19 +26,7 @@ public class MyBikesHandler implements HttpHandler {
             HandlerUtils.setCorsHeaders(exchange);
 
             if ("GET".equals(exchange.getRequestMethod())) {
-                // --- AUTHENTICATION ---
-                String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
-                if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                    HandlerUtils.sendJsonResponse(exchange, 401, gson.toJson(Map.of("success", false, "message", "Missing token.")));
-                    return;
-                }
-                Claims claims = JwtUtil.validateToken(authHeader.substring(7));
-                if (claims == null) {
-                    HandlerUtils.sendJsonResponse(exchange, 401, gson.toJson(Map.of("success", false, "message", "Invalid token.")));
-                    return;
-                }
-
-                String username = claims.getSubject();
+                String username = AuthFilter.principal(exchange);
                 List<Bike> myBikes = bikeService.getBikesOwnedBy(username);
                 HandlerUtils.sendJsonResponse(exchange, 200, gson.toJson(myBikes));
 
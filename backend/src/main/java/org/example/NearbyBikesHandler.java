@@ -0,0 +1,82 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+// GET /api/bikes/nearby?lat=&lon=: the nearest available bikes, nearest first, each with its
+// distance in meters. radius (meters) and limit are optional. Only bikes listed with a
+// position are found.
+public class NearbyBikesHandler implements HttpHandler {
+
+    static final double DEFAULT_RADIUS = 2_000;
+    static final double MAX_RADIUS = 50_000;
+    static final int DEFAULT_LIMIT = 10;
+    static final int MAX_LIMIT = 100;
+
+    private final BikeRentalService bikeService;
+    private final Gson gson = new Gson();
+
+    public NearbyBikesHandler(BikeRentalService bikeService) {
+        this.bikeService = bikeService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                HandlerUtils.handleOptionsRequest(exchange);
+                return;
+            }
+            HandlerUtils.setCorsHeaders(exchange);
+
+            if ("GET".equals(exchange.getRequestMethod())) {
+                Map<String, String> query = HandlerUtils.parseQuery(exchange);
+                List<GeoGrid.Hit> hits;
+                try {
+                    if (!query.containsKey("lat") || !query.containsKey("lon")) {
+                        throw new IllegalArgumentException("lat and lon are required.");
+                    }
+                    double lat = Double.parseDouble(query.get("lat"));
+                    double lon = Double.parseDouble(query.get("lon"));
+                    double radius = query.containsKey("radius") ? Double.parseDouble(query.get("radius")) : DEFAULT_RADIUS;
+                    int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_LIMIT;
+                    if (!(Math.abs(lat) <= 90) || !(Math.abs(lon) <= 180)) {
+                        throw new IllegalArgumentException("lat must be within 90 and lon within 180 degrees.");
+                    }
+                    if (!(radius > 0 && radius <= MAX_RADIUS)) {
+                        throw new IllegalArgumentException("radius must be between 0 and " + (int) MAX_RADIUS + " meters.");
+                    }
+                    if (limit < 1 || limit > MAX_LIMIT) {
+                        throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT + ".");
+                    }
+                    hits = bikeService.getNearbyBikes(lat, lon, radius, limit);
+                } catch (NumberFormatException e) {
+                    HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", "lat, lon, radius and limit must be numbers.")));
+                    return;
+                } catch (IllegalArgumentException e) {
+                    HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", e.getMessage())));
+                    return;
+                }
+
+                HandlerUtils.streamJsonResponse(exchange, 200, out -> {
+                    out.beginArray();
+                    for (GeoGrid.Hit hit : hits) {
+                        out.beginObject();
+                        Bike.Serializer.writeFields(out, hit.bike(), null);
+                        out.name("distance").value(Math.round(hit.distance()));
+                        out.endObject();
+                    }
+                    out.endArray();
+                });
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
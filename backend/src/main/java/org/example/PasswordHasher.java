@@ -0,0 +1,130 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2 password hashes, stored as "pbkdf2$<iterations>$<salt>$<hash>" (Base64), so the
+// cost can be raised later without invalidating existing hashes.
+//
+// Hashing is deliberately slow, so it runs on its own pool sized to the cores with a short queue,
+// never on the HTTP threads' CPU budget beyond waiting. When the queue is full, hash and verify
+// throw RejectedExecutionException straight away and the caller answers 503.
+public class PasswordHasher {
+
+    private static final String PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA512";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 512;
+
+    private final int iterations;
+    private final ThreadPoolExecutor executor;
+    private final SecureRandom random = new SecureRandom();
+    // Verified against for unknown users, so they take as long as a wrong password
+    private final String dummy;
+
+    // --- STATS ---
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordHasher(int iterations, int threads, int queueCapacity) {
+        this.iterations = iterations;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hasher-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.dummy = encode(iterations, salt(), new byte[HASH_BITS / 8]);
+    }
+
+    // -Dauth.pbkdf2Iterations (default 210000), -Dauth.hashThreads (default: cores),
+    // -Dauth.hashQueue (default: 4 per thread)
+    public static PasswordHasher fromSystemProperties() {
+        int threads = Integer.getInteger("auth.hashThreads", Runtime.getRuntime().availableProcessors());
+        return new PasswordHasher(Integer.getInteger("auth.pbkdf2Iterations", 210_000), threads,
+                Integer.getInteger("auth.hashQueue", threads * 4));
+    }
+
+    public String hash(String password) {
+        byte[] salt = salt();
+        return encode(iterations, salt, run(() -> derive(password, salt, iterations)));
+    }
+
+    // stored may be null (unknown user): a dummy hash is checked instead and the answer is false.
+    // Values without the prefix predate hashing and are compared as plain text.
+    public boolean verify(String password, String stored) {
+        if (stored != null && !stored.startsWith(PREFIX)) {
+            return MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = (stored != null ? stored : dummy).split("\\$");
+        int cost = Integer.parseInt(parts[1]);
+        byte[] salt = Base64.getDecoder().decode(parts[2]);
+        byte[] expected = Base64.getDecoder().decode(parts[3]);
+        byte[] actual = run(() -> derive(password, salt, cost));
+        return MessageDigest.isEqual(expected, actual) && stored != null;
+    }
+
+    public long getHashes() { return hashes.sum(); }
+    public long getRejected() { return rejected.sum(); }
+    public int getQueued() { return executor.getQueue().size(); }
+    public int getActive() { return executor.getActiveCount(); }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private byte[] run(Callable<byte[]> task) {
+        Future<byte[]> result;
+        try {
+            result = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not hash a password", e.getCause());
+        }
+    }
+
+    private byte[] derive(String password, byte[] salt, int cost) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, cost, HASH_BITS);
+        try {
+            hashes.increment();
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private byte[] salt() {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return salt;
+    }
+
+    private static String encode(int iterations, byte[] salt, byte[] hash) {
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+}
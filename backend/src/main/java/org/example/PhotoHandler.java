@@ -0,0 +1,78 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Serves GET /api/photos/{hash}. A hash names exactly one set of bytes, so responses never change:
+// the hash is the ETag and clients may cache them forever.
+public class PhotoHandler implements HttpHandler {
+
+    private final PhotoStore photoStore;
+
+    public PhotoHandler(PhotoStore photoStore) {
+        this.photoStore = photoStore;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                HandlerUtils.handleOptionsRequest(exchange);
+                return;
+            }
+
+            HandlerUtils.setCorsHeaders(exchange);
+
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            String hash = exchange.getRequestURI().getPath().substring(PhotoStore.URL_PREFIX.length());
+            Path photo = photoStore.find(hash);
+            if (photo == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            String etag = "\"" + hash + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "public, max-age=31536000, immutable");
+
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", photoStore.contentType(photo));
+            try (FileChannel file = FileChannel.open(photo, StandardOpenOption.READ)) {
+                long size = file.size();
+                if ("HEAD".equals(method)) {
+                    exchange.getResponseHeaders().set("Content-Length", Long.toString(size));
+                    exchange.sendResponseHeaders(200, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(200, size);
+                // Let the file channel push the bytes straight out instead of reading them into the heap first
+                try (OutputStream os = exchange.getResponseBody();
+                     WritableByteChannel out = Channels.newChannel(os)) {
+                    long position = 0;
+                    while (position < size) {
+                        position += file.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+// Photos on local disk, named by the SHA-256 of their bytes, so the same upload is only stored once.
+// Bikes keep just the short "/api/photos/<hash>" reference instead of the image itself.
+public class PhotoStore {
+
+    public static final String URL_PREFIX = "/api/photos/";
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    public PhotoStore(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+    }
+
+    // Moves an inline "data:...;base64," photo into the store and returns its reference.
+    // Anything else (a normal link, or no photo) is returned unchanged.
+    public String toReference(String photoUrl) throws IOException {
+        if (photoUrl == null || !photoUrl.startsWith("data:")) {
+            return photoUrl;
+        }
+        int comma = photoUrl.indexOf(',');
+        if (comma < 0 || !photoUrl.substring(0, comma).endsWith(";base64")) {
+            return photoUrl;
+        }
+        byte[] bytes = Base64.getMimeDecoder().decode(photoUrl.substring(comma + 1));
+        return URL_PREFIX + store(bytes);
+    }
+
+    public String store(byte[] bytes) throws IOException {
+        String hash = sha256(bytes);
+        Path target = pathFor(hash);
+        if (Files.exists(target)) {
+            return hash; // already have these exact bytes
+        }
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), hash, ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return hash;
+    }
+
+    // The file for a hash, or null if the hash is malformed or unknown.
+    public Path find(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return null;
+        }
+        Path path = pathFor(hash);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    public String contentType(Path photo) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(photo))) {
+            String type = URLConnection.guessContentTypeFromStream(in);
+            return type != null ? type : "application/octet-stream";
+        } catch (IOException e) {
+            return "application/octet-stream";
+        }
+    }
+
+    // Two-character fan-out directories keep any one directory small.
+    private Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
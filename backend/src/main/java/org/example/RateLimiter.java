@@ -0,0 +1,166 @@
+package org.example;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Token buckets for one endpoint, one per client: the authenticated user if the request passed
+// AuthFilter, otherwise the remote address. A bucket holds up to `capacity` requests and refills
+// at `perSecond`. Each bucket is an immutable state swapped by CAS, like Bike.State, so clients
+// never wait on each other.
+//
+// The filter goes after AuthFilter on a context. Every response carries X-RateLimit-Limit and
+// X-RateLimit-Remaining; over the limit the request gets 429 with Retry-After and never reaches
+// the handler. Buckets that have been idle long enough to be full again are swept away, since a
+// fresh bucket is the same thing; close() stops that for a limiter that is no longer used.
+public class RateLimiter implements AutoCloseable {
+
+    private record State(double tokens, long updatedNanos) {}
+
+    private static final ScheduledThreadPoolExecutor SWEEPER = sweeper();
+
+    private final String name;
+    private final int capacity;
+    private final double perSecond;
+    private final long refillNanos;
+    private final Map<String, AtomicReference<State>> buckets = new ConcurrentHashMap<>();
+    private final Filter filter;
+    private final ScheduledFuture<?> sweeping;
+
+    // --- STATS ---
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+
+    // capacity at least 1 and perSecond positive and finite, or IllegalArgumentException
+    public RateLimiter(String name, int capacity, double perSecond) {
+        if (capacity < 1 || !(perSecond > 0) || Double.isInfinite(perSecond)) {
+            throw new IllegalArgumentException("Rate limit " + name + " needs a capacity of at least 1 and a positive "
+                    + "refill rate, got " + capacity + "/" + perSecond);
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.perSecond = perSecond;
+        this.refillNanos = (long) (capacity / perSecond * 1e9);
+        this.filter = new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                limit(exchange, chain);
+            }
+
+            @Override
+            public String description() {
+                return "Rate limit for " + name;
+            }
+        };
+        long sweepSeconds = Math.max(1, refillNanos / 1_000_000_000);
+        this.sweeping = SWEEPER.scheduleWithFixedDelay(this::sweep, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+    }
+
+    // -Dratelimit.<name>=<capacity>/<perSecond>, e.g. -Dratelimit.book=20/5. A value that does not
+    // parse, or is out of range (see the constructor), fails startup with IllegalArgumentException.
+    public static RateLimiter fromSystemProperties(String name, int capacity, double perSecond) {
+        String property = "ratelimit." + name;
+        String value = System.getProperty(property);
+        if (value != null) {
+            String[] parts = value.split("/");
+            try {
+                if (parts.length != 2) {
+                    throw new NumberFormatException("expected two numbers");
+                }
+                capacity = Integer.parseInt(parts[0].trim());
+                perSecond = Double.parseDouble(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("-D" + property + "=" + value
+                        + " is not <capacity>/<perSecond>, e.g. 20/5", e);
+            }
+        }
+        return new RateLimiter(name, capacity, perSecond);
+    }
+
+    public Filter filter() {
+        return filter;
+    }
+
+    // Takes a token for key. Returns the tokens left (>= 0) when there was one to take;
+    // otherwise a negative number, the shortfall to a whole token.
+    public double tryAcquire(String key) {
+        AtomicReference<State> bucket =
+                buckets.computeIfAbsent(key, k -> new AtomicReference<>(new State(capacity, System.nanoTime())));
+        while (true) {
+            State current = bucket.get();
+            long now = System.nanoTime();
+            double tokens = Math.min(capacity, current.tokens() + (now - current.updatedNanos()) * perSecond / 1e9);
+            if (tokens < 1) {
+                limited.increment();
+                return tokens - 1;
+            }
+            if (bucket.compareAndSet(current, new State(tokens - 1, now))) {
+                allowed.increment();
+                return tokens - 1;
+            }
+        }
+    }
+
+    public String getName() { return name; }
+    public long getAllowed() { return allowed.sum(); }
+    public long getLimited() { return limited.sum(); }
+    public int getBuckets() { return buckets.size(); }
+
+    // Stops sweeping and drops every bucket. The filter keeps working, with fresh buckets, but
+    // nothing removes them any more.
+    @Override
+    public void close() {
+        sweeping.cancel(false);
+        buckets.clear();
+    }
+
+    private void limit(HttpExchange exchange, Filter.Chain chain) throws IOException {
+        if ("OPTIONS".equals(exchange.getRequestMethod())) {
+            chain.doFilter(exchange);
+            return;
+        }
+        String user = AuthFilter.principal(exchange);
+        String key = user != null ? "user:" + user : "ip:" + exchange.getRemoteAddress().getAddress().getHostAddress();
+
+        double left = tryAcquire(key);
+        exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(capacity));
+        exchange.getResponseHeaders().set("X-RateLimit-Remaining", String.valueOf((long) Math.max(0, left)));
+        if (left >= 0) {
+            chain.doFilter(exchange);
+            return;
+        }
+        try {
+            HandlerUtils.setCorsHeaders(exchange);
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf((long) Math.ceil(-left / perSecond)));
+            HandlerUtils.sendJsonResponse(exchange, 429,
+                    "{\"success\":false,\"message\":\"Too many requests, slow down.\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // A bucket untouched for a full refill is back at capacity. A request racing the removal
+    // may take its token from the dropped bucket; the client gains one token at most.
+    private void sweep() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(e -> now - e.getValue().get().updatedNanos() >= refillNanos);
+    }
+
+    private static ScheduledThreadPoolExecutor sweeper() {
+        ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "rate-limit-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        // A closed limiter's task leaves the queue at once, not at its next run, and its buckets with it
+        sweeper.setRemoveOnCancelPolicy(true);
+        return sweeper;
+    }
+}
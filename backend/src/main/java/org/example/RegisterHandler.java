@@ -6,6 +6,7 @@ import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 public class RegisterHandler implements HttpHandler {
 
@@ -49,6 +50,8 @@ public class RegisterHandler implements HttpHandler {
                         String jsonResponse = gson.toJson(Map.of("success", false, "message", "Username already exists."));
                         HandlerUtils.sendJsonResponse(exchange, 409, jsonResponse); // 409 Conflict
                     }
+                } catch (RejectedExecutionException e) {
+                    HandlerUtils.sendBusyResponse(exchange, 1);
                 } catch (Exception e) {
                     String jsonResponse = gson.toJson(Map.of("success", false, "message", "Error processing request: " + e.getMessage()));
                     HandlerUtils.sendJsonResponse(exchange, 500, jsonResponse);
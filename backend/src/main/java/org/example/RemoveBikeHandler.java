@@ -3,7 +3,6 @@ package org.example;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import io.jsonwebtoken.Claims;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Map;
@@ -27,17 +26,7 @@ public class RemoveBikeHandler implements HttpHandler {
             HandlerUtils.setCorsHeaders(exchange);
 
             if ("POST".equals(exchange.getRequestMethod())) {
-                String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
-                if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                    HandlerUtils.sendJsonResponse(exchange, 401, gson.toJson(Map.of("success", false, "message", "Missing token.")));
-                    return;
-                }
-                Claims claims = JwtUtil.validateToken(authHeader.substring(7));
-                if (claims == null) {
-                    HandlerUtils.sendJsonResponse(exchange, 401, gson.toJson(Map.of("success", false, "message", "Invalid token.")));
-                    return;
-                }
-                String username = claims.getSubject();
+                String username = AuthFilter.principal(exchange);
 
                 InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), "utf-8");
                 Map<String, Object> requestBody = gson.fromJson(isr, Map.class);
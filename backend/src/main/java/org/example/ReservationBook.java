@@ -0,0 +1,191 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Reservations of bikes for [start, end) windows, in epoch millis. Each bike keeps its own in a
+// TreeMap by start. They never overlap, so their ends are in the same order as their starts, and
+// the only one that can clash with a new window is the last one starting before the window ends:
+// a conflict check or a "free between X and Y" question is one lookup, however many a bike has.
+//
+// Changes to one bike's reservations run under that bike's monitor, so only requests for the same
+// bike (or one sharing its stripe) wait on each other. Each change calls back while still holding
+// it, so the caller can log it and one bike's records always reach the log in the order they
+// happened. BikeRentalService takes the same monitor around its rental transitions, so a check of
+// the reservations and a transition decided on it cannot interleave with a reservation being made.
+// Reservations that have ended are dropped the next time the bike is reserved; what happened is
+// in the booking ledger.
+public class ReservationBook {
+
+    public record Reservation(int id, int bikeId, String userId, long start, long end) {}
+
+    private final Map<Integer, NavigableMap<Long, Reservation>> byBike = new ConcurrentHashMap<>();
+    private final Map<Integer, Reservation> byId = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> byUser = new ConcurrentHashMap<>();
+    private final AtomicInteger idCounter = new AtomicInteger();
+    // Striped by bike id rather than one per bike, so bikes never reserved cost nothing
+    private final Object[] monitors = new Object[1024];
+
+    public ReservationBook() {
+        for (int i = 0; i < monitors.length; i++) {
+            monitors[i] = new Object();
+        }
+    }
+
+    // The monitor guarding this bike's reservations
+    public Object monitor(int bikeId) {
+        return monitors[bikeId & (monitors.length - 1)];
+    }
+
+    // The monitors of several bikes, each once, in the one order every caller must take them in
+    public List<Object> monitors(List<Integer> bikeIds) {
+        return bikeIds.stream().mapToInt(id -> id & (monitors.length - 1)).distinct().sorted()
+                .mapToObj(stripe -> monitors[stripe]).toList();
+    }
+
+    // Adds a reservation unless it overlaps one the bike already has; null on a conflict
+    public Reservation reserve(int bikeId, String userId, long start, long end, long now, Consumer<Reservation> made) {
+        synchronized (monitor(bikeId)) {
+            NavigableMap<Long, Reservation> schedule = byBike.computeIfAbsent(bikeId, id -> new TreeMap<>());
+            dropEnded(schedule, now);
+            if (overlapping(schedule, start, end) != null) {
+                return null;
+            }
+            Reservation reservation = new Reservation(idCounter.incrementAndGet(), bikeId, userId, start, end);
+            index(schedule, reservation);
+            made.accept(reservation);
+            return reservation;
+        }
+    }
+
+    // Returns the cancelled reservation, or null if there was none with that id
+    public Reservation cancel(int id, Consumer<Reservation> cancelled) {
+        Reservation reservation = byId.get(id);
+        if (reservation == null) {
+            return null;
+        }
+        synchronized (monitor(reservation.bikeId())) {
+            NavigableMap<Long, Reservation> schedule = byBike.get(reservation.bikeId());
+            if (!schedule.remove(reservation.start(), reservation)) {
+                return null; // cancelled or dropped meanwhile
+            }
+            unindex(reservation);
+            cancelled.accept(reservation);
+            return reservation;
+        }
+    }
+
+    public Reservation get(int id) {
+        return byId.get(id);
+    }
+
+    public boolean isFree(int bikeId, long start, long end) {
+        return overlappingAt(bikeId, start, end) == null;
+    }
+
+    // The reservation holding the bike at `time`, if any
+    public Reservation covering(int bikeId, long time) {
+        return overlappingAt(bikeId, time, time + 1);
+    }
+
+    public boolean hasUpcoming(int bikeId, long now) {
+        synchronized (monitor(bikeId)) {
+            NavigableMap<Long, Reservation> schedule = byBike.get(bikeId);
+            return schedule != null && !schedule.isEmpty() && schedule.lastEntry().getValue().end() > now;
+        }
+    }
+
+    // The user's reservations that have not ended, soonest first
+    public List<Reservation> forUser(String userId, long now) {
+        List<Reservation> result = new ArrayList<>();
+        for (Integer id : byUser.getOrDefault(userId, Set.of())) {
+            Reservation reservation = byId.get(id);
+            if (reservation != null && reservation.end() > now) {
+                result.add(reservation);
+            }
+        }
+        result.sort(Comparator.comparingLong(Reservation::start).thenComparingInt(Reservation::id));
+        return result;
+    }
+
+    // Everything not yet ended, for checkpoints
+    public List<Reservation> upcoming(long now) {
+        List<Reservation> result = new ArrayList<>(byId.size());
+        for (Reservation reservation : byId.values()) {
+            if (reservation.end() > now) {
+                result.add(reservation);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    int getIdCounter() {
+        return idCounter.get();
+    }
+
+    // --- RECOVERY (used by Checkpointer through BikeRentalService) ---
+    // Records may be replayed more than once, so a known id is left alone.
+
+    void restore(Reservation reservation) {
+        idCounter.accumulateAndGet(reservation.id(), Math::max);
+        if (byId.containsKey(reservation.id())) {
+            return;
+        }
+        synchronized (monitor(reservation.bikeId())) {
+            index(byBike.computeIfAbsent(reservation.bikeId(), id -> new TreeMap<>()), reservation);
+        }
+    }
+
+    void restoreCancelled(int id) {
+        cancel(id, reservation -> {});
+    }
+
+    void restoreIdCounter(int value) {
+        idCounter.accumulateAndGet(value, Math::max);
+    }
+
+    private Reservation overlappingAt(int bikeId, long start, long end) {
+        synchronized (monitor(bikeId)) {
+            NavigableMap<Long, Reservation> schedule = byBike.get(bikeId);
+            return schedule == null ? null : overlapping(schedule, start, end);
+        }
+    }
+
+    // The last reservation starting before `end` is the only candidate: any earlier one also ends earlier
+    private static Reservation overlapping(NavigableMap<Long, Reservation> schedule, long start, long end) {
+        Map.Entry<Long, Reservation> before = schedule.lowerEntry(end);
+        return before != null && before.getValue().end() > start ? before.getValue() : null;
+    }
+
+    private void dropEnded(NavigableMap<Long, Reservation> schedule, long now) {
+        while (!schedule.isEmpty() && schedule.firstEntry().getValue().end() <= now) {
+            unindex(schedule.pollFirstEntry().getValue());
+        }
+    }
+
+    private void index(NavigableMap<Long, Reservation> schedule, Reservation reservation) {
+        schedule.put(reservation.start(), reservation);
+        byId.put(reservation.id(), reservation);
+        byUser.computeIfAbsent(reservation.userId(), u -> ConcurrentHashMap.newKeySet()).add(reservation.id());
+    }
+
+    private void unindex(Reservation reservation) {
+        byId.remove(reservation.id());
+        Set<Integer> ids = byUser.get(reservation.userId());
+        if (ids != null) {
+            ids.remove(reservation.id());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Map;
+
+// GET /api/reservations: the caller's reservations that have not ended, soonest first.
+// POST /api/reservations {bikeId, start, end}: reserves a bike for [start, end), epoch millis;
+// 201 with the reservation, 409 if the window is taken.
+// POST /api/reservations/cancel {reservationId}: cancels one of the caller's reservations.
+public class ReservationsHandler implements HttpHandler {
+
+    private final BikeRentalService bikeService;
+    private final Gson gson = new Gson();
+
+    public ReservationsHandler(BikeRentalService bikeService) {
+        this.bikeService = bikeService;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                HandlerUtils.handleOptionsRequest(exchange);
+                return;
+            }
+            HandlerUtils.setCorsHeaders(exchange);
+
+            String username = AuthFilter.principal(exchange);
+            String path = exchange.getRequestURI().getPath();
+            if ("GET".equals(exchange.getRequestMethod()) && path.equals("/api/reservations")) {
+                HandlerUtils.sendJsonResponse(exchange, 200, gson.toJson(bikeService.getReservations(username)));
+            } else if ("POST".equals(exchange.getRequestMethod()) && path.equals("/api/reservations")) {
+                reserve(exchange, username);
+            } else if ("POST".equals(exchange.getRequestMethod()) && path.equals("/api/reservations/cancel")) {
+                cancel(exchange, username);
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        } catch (Exception e) {
+            HandlerUtils.sendJsonResponse(exchange, 500, gson.toJson(Map.of("success", false, "message", "Error processing request: " + e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void reserve(HttpExchange exchange, String username) throws IOException {
+        Map<String, Object> requestBody = gson.fromJson(new InputStreamReader(exchange.getRequestBody(), "utf-8"), Map.class);
+        if (requestBody == null || !(requestBody.get("bikeId") instanceof Double bikeId)
+                || !(requestBody.get("start") instanceof Double start) || !(requestBody.get("end") instanceof Double end)) {
+            HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", "bikeId, start and end are required.")));
+            return;
+        }
+        ReservationBook.Reservation reservation;
+        try {
+            reservation = bikeService.reserveBike(bikeId.intValue(), username, start.longValue(), end.longValue());
+        } catch (IllegalArgumentException e) {
+            HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", e.getMessage())));
+            return;
+        }
+        if (reservation == null) {
+            HandlerUtils.sendJsonResponse(exchange, 409, gson.toJson(Map.of("success", false, "message", "The bike is already taken for part of that time.")));
+        } else {
+            HandlerUtils.sendJsonResponse(exchange, 201, gson.toJson(Map.of("success", true, "message", "Bike reserved.", "reservation", reservation)));
+        }
+    }
+
+    private void cancel(HttpExchange exchange, String username) throws IOException {
+        Map<String, Object> requestBody = gson.fromJson(new InputStreamReader(exchange.getRequestBody(), "utf-8"), Map.class);
+        if (requestBody == null || !(requestBody.get("reservationId") instanceof Double reservationId)) {
+            HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", "reservationId is required.")));
+            return;
+        }
+        String result = bikeService.cancelReservation(reservationId.intValue(), username);
+        if (result == null) {
+            HandlerUtils.sendJsonResponse(exchange, 200, gson.toJson(Map.of("success", true, "message", "Reservation cancelled.")));
+        } else {
+            HandlerUtils.sendJsonResponse(exchange, 400, gson.toJson(Map.of("success", false, "message", result)));
+        }
+    }
+}
@@ -3,7 +3,6 @@ package org.example;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import io.jsonwebtoken.Claims; // Make sure this is imported
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Map;
@@ -29,25 +28,7 @@ public class ReturnHandler implements HttpHandler {
 
             if ("POST".equals(exchange.getRequestMethod())) {
                 try {
-
-                    String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
-
-                    if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                        String jsonResponse = gson.toJson(Map.of("success", false, "message", "Missing or invalid auth token."));
-                        HandlerUtils.sendJsonResponse(exchange, 401, jsonResponse); // 401 Unauthorized
-                        return;
-                    }
-
-                    String token = authHeader.substring(7);
-                    Claims claims = JwtUtil.validateToken(token);
-
-                    if (claims == null) {
-                        String jsonResponse = gson.toJson(Map.of("success", false, "message", "Invalid or expired token."));
-                        HandlerUtils.sendJsonResponse(exchange, 401, jsonResponse);
-                        return;
-                    }
-
-                    String username = claims.getSubject();
+                    String username = AuthFilter.principal(exchange);
 
                     InputStreamReader isr = new InputStreamReader(exchange.getRequestBody(), "utf-8");
                     Map<String, Object> requestBody = gson.fromJson(isr, Map.class);
@@ -0,0 +1,117 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.Framedata;
+
+// One text message, encoded once and sent to any number of connections. The payload is encoded to
+// UTF-8 once and, the first time a connection with permessage-deflate needs it, compressed once;
+// each connection then only frames those bytes, through WebSocket.sendFrame.
+//
+// The frame handed to sendFrame is not a DataFrame, so the library's deflate extension leaves it
+// as it is instead of compressing it again. Sharing the compressed bytes works because they are
+// made without context takeover, so they do not depend on anything else the connection was sent.
+// The server negotiates server_no_context_takeover for the same reason (see BikeWebSocketServer).
+public final class SharedFrame {
+
+    // Smaller payloads go out uncompressed; that is valid on deflate connections as well
+    static final int DEFLATE_THRESHOLD = 1024;
+    private static final byte[] TAIL = {0, 0, (byte) 0xff, (byte) 0xff};
+
+    private final byte[] payload;
+    private final Frame plain;
+    private Frame deflated;
+
+    public SharedFrame(String text) {
+        this(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public SharedFrame(byte[] payload) {
+        this.payload = payload;
+        this.plain = new Frame(ByteBuffer.wrap(payload), false);
+    }
+
+    // Queues the frame on the connection; false if the connection is no longer open
+    public boolean sendTo(WebSocket conn) {
+        if (!conn.isOpen()) {
+            return false;
+        }
+        try {
+            conn.sendFrame(deflates(conn) ? deflated() : plain);
+            return true;
+        } catch (WebsocketNotConnectedException e) {
+            return false;
+        }
+    }
+
+    public int getPayloadSize() {
+        return payload.length;
+    }
+
+    // The payload size on a deflate connection, compressing it if that has not happened yet
+    public int getDeflatedSize() {
+        return deflated().data.remaining();
+    }
+
+    static boolean deflates(WebSocket conn) {
+        return conn.getDraft() instanceof Draft_6455 draft
+                && draft.getExtension() instanceof PerMessageDeflateExtension;
+    }
+
+    private synchronized Frame deflated() {
+        if (deflated == null) {
+            deflated = payload.length < DEFLATE_THRESHOLD
+                    ? plain
+                    : new Frame(ByteBuffer.wrap(deflate(payload)), true);
+        }
+        return deflated;
+    }
+
+    // Raw deflate up to a sync flush, minus the 00 00 ff ff the flush ends with (RFC 7692, 7.2.1)
+    private static byte[] deflate(byte[] payload) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(payload);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 4 + 64);
+            byte[] chunk = new byte[8192];
+            int n;
+            do {
+                n = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                out.write(chunk, 0, n);
+            } while (n == chunk.length);
+            byte[] compressed = out.toByteArray();
+            int end = compressed.length - TAIL.length;
+            if (end >= 0 && Arrays.equals(compressed, end, compressed.length, TAIL, 0, TAIL.length)) {
+                return Arrays.copyOf(compressed, end);
+            }
+            return compressed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // A whole text message with its payload as it goes on the wire; rsv1 marks a compressed one.
+    // Each read of the payload is a view of its own, as the library consumes what it is given.
+    private record Frame(ByteBuffer data, boolean rsv1) implements Framedata {
+        @Override public boolean isFin() { return true; }
+        @Override public boolean isRSV1() { return rsv1; }
+        @Override public boolean isRSV2() { return false; }
+        @Override public boolean isRSV3() { return false; }
+        @Override public boolean getTransfereMasked() { return false; }
+        @Override public Opcode getOpcode() { return Opcode.TEXT; }
+        @Override public ByteBuffer getPayloadData() { return data.duplicate(); }
+
+        @Override
+        public void append(Framedata nextframe) {
+            throw new UnsupportedOperationException("A shared frame is never continued");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns the distinct values of a string column as small int codes, so a million bikes at a
+// few hundred locations hold a few hundred location strings. Code 0 stands for null. Codes are
+// never released: a dictionary keeps every distinct value it has seen, even once no bike uses
+// it, so it only suits columns whose values repeat across the fleet (models, locations, owners,
+// renters) rather than ones close to unique per bike.
+public class StringDictionary {
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    // Grown under the lock and republished; a code is only handed out after its value is in place
+    private volatile String[] values = new String[16];
+    private int size = 1;
+
+    public int encode(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    public String decode(int code) {
+        return values[code];
+    }
+
+    // Distinct values, not counting null
+    public int size() {
+        return codes.size();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.java_websocket.WebSocket;
+
+// What each WebSocket connection wants to hear about, kept as a reverse index from topic to
+// connections so a change is matched against its own three topics rather than every client.
+//
+// Topics are "location:<name>", "owner:<username>" and "bike:<id>", plus ALL for everything.
+// A connection starts on ALL, which is what clients that never subscribe rely on; its first
+// specific subscription takes it off ALL, and subscribing to ALL again puts it back.
+//
+// Read by the publisher thread while WebSocket threads subscribe, so both maps are concurrent.
+// A change racing a subscribe may or may not reach that connection, as with any later subscribe.
+public class Subscriptions {
+
+    public static final String ALL = "all";
+
+    private final Map<String, Set<WebSocket>> byTopic = new ConcurrentHashMap<>();
+    private final Map<WebSocket, Set<String>> byConnection = new ConcurrentHashMap<>();
+
+    public static String location(String location) { return "location:" + location; }
+    public static String owner(String owner) { return "owner:" + owner; }
+    public static String bike(int bikeId) { return "bike:" + bikeId; }
+
+    public void connected(WebSocket conn) {
+        byConnection.put(conn, ConcurrentHashMap.newKeySet());
+        add(conn, ALL);
+    }
+
+    public void disconnected(WebSocket conn) {
+        Set<String> topics = byConnection.remove(conn);
+        if (topics != null) {
+            for (String topic : topics) {
+                remove(topic, conn);
+            }
+        }
+    }
+
+    public void subscribe(WebSocket conn, List<String> topics) {
+        if (!byConnection.containsKey(conn)) {
+            return;
+        }
+        if (!topics.contains(ALL)) {
+            unsubscribe(conn, List.of(ALL));
+        }
+        for (String topic : topics) {
+            add(conn, topic);
+        }
+    }
+
+    public void unsubscribe(WebSocket conn, List<String> topics) {
+        Set<String> current = byConnection.get(conn);
+        if (current == null) {
+            return;
+        }
+        for (String topic : topics) {
+            if (current.remove(topic)) {
+                remove(topic, conn);
+            }
+        }
+    }
+
+    public Set<String> topicsOf(WebSocket conn) {
+        Set<String> topics = byConnection.get(conn);
+        return topics == null ? Set.of() : Collections.unmodifiableSet(topics);
+    }
+
+    // Connections subscribed to everything; they share one frame per batch
+    public Set<WebSocket> everything() {
+        return byTopic.getOrDefault(ALL, Set.of());
+    }
+
+    // Calls `action` for every connection on one of the entry's topics, other than those on ALL.
+    // A connection on several of them is visited once per topic.
+    public void forEachSubscriber(EventJournal.Entry entry, Consumer<WebSocket> action) {
+        visit(bike(entry.bikeId()), action);
+        if (entry.location() != null) {
+            visit(location(entry.location()), action);
+        }
+        if (entry.owner() != null) {
+            visit(owner(entry.owner()), action);
+        }
+    }
+
+    public boolean matches(WebSocket conn, EventJournal.Entry entry) {
+        Set<String> topics = byConnection.get(conn);
+        return topics != null && (topics.contains(ALL)
+                || topics.contains(bike(entry.bikeId()))
+                || (entry.location() != null && topics.contains(location(entry.location())))
+                || (entry.owner() != null && topics.contains(owner(entry.owner()))));
+    }
+
+    public int getTopicCount() {
+        return byTopic.size();
+    }
+
+    private void visit(String topic, Consumer<WebSocket> action) {
+        Set<WebSocket> subscribers = byTopic.get(topic);
+        if (subscribers != null) {
+            subscribers.forEach(action);
+        }
+    }
+
+    private void add(WebSocket conn, String topic) {
+        Set<String> current = byConnection.get(conn);
+        if (current != null && current.add(topic)) {
+            // Added inside compute so it cannot land in a set remove() is dropping
+            byTopic.compute(topic, (t, subscribers) -> {
+                Set<WebSocket> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+                set.add(conn);
+                return set;
+            });
+        }
+    }
+
+    // Drops the topic's set once empty, so the index only holds topics somebody listens to
+    private void remove(String topic, WebSocket conn) {
+        byTopic.computeIfPresent(topic, (t, subscribers) -> {
+            subscribers.remove(conn);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+}
@@ -0,0 +1,170 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Binary payloads of the write-ahead log records, and the string encoding shared with checkpoints.
+// Bike transitions carry the version they produced, so replaying them is idempotent: a record
+// only takes effect if it is newer than what the bike already has.
+public class WalRecords {
+
+    public static final byte USER_REGISTERED = 1;
+    public static final byte BIKE_LISTED = 2;
+    public static final byte BIKE_BOOKED = 3;
+    public static final byte BIKE_RETURNED = 4;
+    public static final byte BIKE_REMOVED = 5;
+    public static final byte RESERVATION_MADE = 6;
+    public static final byte RESERVATION_CANCELLED = 7;
+    public static final byte BATCH = 8;
+
+    public interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    public static byte[] userRegistered(String username, String passwordHash) {
+        return encode(USER_REGISTERED, out -> {
+            writeString(out, username);
+            writeString(out, passwordHash);
+        });
+    }
+
+    // The position goes last, so records written before bikes had one still read
+    public static byte[] bikeListed(Bike bike) {
+        return encode(BIKE_LISTED, out -> {
+            writeBike(out, bike);
+            writePosition(out, bike);
+        });
+    }
+
+    // Carries the rent rate, as the bike may be gone by the time the record is replayed
+    public static byte[] bikeBooked(int bikeId, String userId, long version, long time, double rentRate) {
+        return encode(BIKE_BOOKED, out -> {
+            out.writeInt(bikeId);
+            writeString(out, userId);
+            out.writeLong(version);
+            out.writeLong(time);
+            out.writeDouble(rentRate);
+        });
+    }
+
+    public static byte[] bikeReturned(int bikeId, String userId, long version, long time) {
+        return encode(BIKE_RETURNED, out -> {
+            out.writeInt(bikeId);
+            writeString(out, userId);
+            out.writeLong(version);
+            out.writeLong(time);
+        });
+    }
+
+    public static byte[] bikeRemoved(int bikeId, long version) {
+        return encode(BIKE_REMOVED, out -> {
+            out.writeInt(bikeId);
+            out.writeLong(version);
+        });
+    }
+
+    // Records that take effect together: recovery sees all of them or, if the write was torn, none
+    public static byte[] batch(List<byte[]> records) {
+        return encode(BATCH, out -> {
+            out.writeInt(records.size());
+            for (byte[] record : records) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        });
+    }
+
+    public static byte[] reservationMade(ReservationBook.Reservation reservation) {
+        return encode(RESERVATION_MADE, out -> writeReservation(out, reservation));
+    }
+
+    public static byte[] reservationCancelled(int reservationId) {
+        return encode(RESERVATION_CANCELLED, out -> out.writeInt(reservationId));
+    }
+
+    public static void writeReservation(DataOutput out, ReservationBook.Reservation reservation) throws IOException {
+        out.writeInt(reservation.id());
+        out.writeInt(reservation.bikeId());
+        writeString(out, reservation.userId());
+        out.writeLong(reservation.start());
+        out.writeLong(reservation.end());
+    }
+
+    public static ReservationBook.Reservation readReservation(DataInput in) throws IOException {
+        return new ReservationBook.Reservation(in.readInt(), in.readInt(), readString(in), in.readLong(), in.readLong());
+    }
+
+    // The immutable fields of a bike; its state is written separately where needed.
+    public static void writeBike(DataOutput out, Bike bike) throws IOException {
+        out.writeInt(bike.getId());
+        writeString(out, bike.getModel());
+        writeString(out, bike.getLocation());
+        writeString(out, bike.getOwner());
+        out.writeInt(bike.getModelYear());
+        out.writeDouble(bike.getRentRate());
+        writeString(out, bike.getContactNumber());
+        writeString(out, bike.getPhotoUrl());
+    }
+
+    public static Bike readBike(DataInput in) throws IOException {
+        return new Bike(in.readInt(), readString(in), readString(in), readString(in),
+                in.readInt(), in.readDouble(), readString(in), readString(in));
+    }
+
+    public static void writePosition(DataOutput out, Bike bike) throws IOException {
+        out.writeDouble(bike.getLatitude());
+        out.writeDouble(bike.getLongitude());
+    }
+
+    // The bike read by readBike, at the position that follows it
+    public static Bike readPosition(DataInput in, Bike bike) throws IOException {
+        return new Bike(bike.getId(), bike.getModel(), bike.getLocation(), bike.getOwner(), bike.getModelYear(),
+                bike.getRentRate(), bike.getContactNumber(), bike.getPhotoUrl(), in.readDouble(), in.readDouble());
+    }
+
+    // Length-prefixed UTF-8 with -1 for null. Unlike writeUTF this has no 64 KB limit,
+    // which inline photos can exceed.
+    public static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static byte readType(DataInputStream record) throws IOException {
+        return record.readByte();
+    }
+
+    private static byte[] encode(byte type, Body body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            body.write(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen writing to memory
+        }
+    }
+}
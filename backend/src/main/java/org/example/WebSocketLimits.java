@@ -0,0 +1,31 @@
+package org.example;
+
+// How BikeWebSocketServer treats clients that stop reading or stop answering.
+//
+// A connection may have up to maxQueuedBytes waiting in its outgoing buffer. A frame that would
+// go to a client past that is not queued; what happens next is the policy:
+// COALESCE   - the client is marked behind, and once its buffer is back under the limit it gets
+//              everything it missed as one frame from the journal, or a snapshot if that is gone
+// DROP       - the frame is dropped; once the buffer is back under the limit the client is sent
+//              {"type":"dropped","lastSeq":N} and resyncs from N. Subscribed clients skip seq
+//              numbers anyway, so a gap alone would not tell them anything was lost.
+// DISCONNECT - frames are dropped as with DROP, and a client still over the limit after
+//              graceMillis is closed with 1013 (try again later), to reconnect and resync when it can
+// Either way a connection holds at most maxQueuedBytes plus the one frame that crossed the limit.
+//
+// Every pingSeconds the server pings each client, and closes those it has not heard from in two
+// intervals. pingSeconds 0 turns liveness checks off.
+public record WebSocketLimits(Policy policy, long maxQueuedBytes, long graceMillis, int pingSeconds) {
+
+    public enum Policy { COALESCE, DROP, DISCONNECT }
+
+    // -Dws.slowPolicy=coalesce|drop|disconnect (default coalesce), -Dws.maxQueuedBytes (1 MiB),
+    // -Dws.slowGraceMillis (5000), -Dws.pingSeconds (30)
+    public static WebSocketLimits fromSystemProperties() {
+        return new WebSocketLimits(
+                Policy.valueOf(System.getProperty("ws.slowPolicy", "coalesce").toUpperCase()),
+                Long.getLong("ws.maxQueuedBytes", 1024 * 1024),
+                Long.getLong("ws.slowGraceMillis", 5000),
+                Integer.getInteger("ws.pingSeconds", 30));
+    }
+}
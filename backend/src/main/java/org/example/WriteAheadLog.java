@@ -0,0 +1,371 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only log of every state change, in segment files named wal-<first record number>.log.
+// Each record is framed as [int length][int crc32][payload] so a torn write at the tail is detected
+// on recovery. Record numbers (LSNs) are implicit: the n-th record ever written has LSN n.
+//
+// Recovery stops at the first bad frame, so nothing may ever be appended after one. A write that
+// fails partway is cut back off the file, and after a failed write or fsync the log refuses every
+// later append: the caller may already have changed memory for that record, and nothing should be
+// acknowledged on top of it. A restart recovers the state that is on disk.
+public class WriteAheadLog implements Closeable {
+
+    // When an append is on disk before the caller is answered:
+    // ALWAYS  - every append fsyncs on its own, one after the other
+    // GROUP   - appends share fsyncs: one fsync covers every record written before it started
+    // INTERVAL - a background thread fsyncs every intervalMillis; appends never wait
+    public enum FsyncPolicy { ALWAYS, GROUP, INTERVAL }
+
+    public interface RecordVisitor {
+        void visit(long lsn, DataInputStream record) throws IOException;
+    }
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int MAX_RECORD = 16 * 1024 * 1024;
+
+    private final Path dir;
+    private final FsyncPolicy policy;
+    private final long intervalMillis;
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+
+    // Guarded by writeLock
+    private FileChannel channel;
+    private long recordsSinceRotate;
+
+    private volatile long lastLsn;
+    private volatile long durableLsn;
+    private volatile long fsyncCount;
+    private volatile boolean closed;
+    // The error that stopped the log, or null while it is healthy
+    private volatile IOException failure;
+    private Thread intervalSyncer;
+
+    // --- STATS ---
+    // Every mutation in the service appends here, so writeLock is what they serialize on
+    private final Histogram lockWait = new Histogram();
+    private final Histogram lockHold = new Histogram();
+    private final Histogram fsyncTime = new Histogram();
+
+    public WriteAheadLog(Path dir, FsyncPolicy policy, long intervalMillis) throws IOException {
+        this.dir = dir;
+        this.policy = policy;
+        this.intervalMillis = intervalMillis;
+        Files.createDirectories(dir);
+    }
+
+    public FsyncPolicy getPolicy() { return policy; }
+    public long getLastLsn() { return lastLsn; }
+    public long getDurableLsn() { return durableLsn; }
+    public long getFsyncCount() { return fsyncCount; }
+    public boolean isFailed() { return failure != null; }
+    public Histogram getLockWait() { return lockWait; }
+    public Histogram getLockHold() { return lockHold; }
+    public Histogram getFsyncTime() { return fsyncTime; }
+
+    public long getRecordsSinceRotate() {
+        synchronized (writeLock) {
+            return recordsSinceRotate;
+        }
+    }
+
+    // Reads every intact record after afterLsn, in order, and leaves the log ready for appends.
+    // The first torn or corrupt record ends the log: it and everything after it were never
+    // acknowledged to anyone, so they are cut off.
+    public void recover(long afterLsn, RecordVisitor visitor) throws IOException {
+        List<Long> segments = segments();
+        long lsn = segments.isEmpty() ? afterLsn : segments.get(0) - 1;
+        for (int i = 0; i < segments.size(); i++) {
+            long first = segments.get(i);
+            lsn = first - 1;
+            if (i + 1 < segments.size() && segments.get(i + 1) <= afterLsn + 1) {
+                lsn = segments.get(i + 1) - 1; // every record in here is already in the snapshot
+                continue;
+            }
+            Path path = path(first);
+            long validEnd = 0;
+            try (InputStream file = Files.newInputStream(path);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+                while (true) {
+                    byte[] payload = readRecord(in);
+                    if (payload == null) {
+                        break;
+                    }
+                    lsn++;
+                    validEnd += 8 + payload.length;
+                    if (lsn > afterLsn) {
+                        visitor.visit(lsn, new DataInputStream(new ByteArrayInputStream(payload)));
+                    }
+                }
+            }
+            if (validEnd < Files.size(path)) {
+                System.err.println("Write-ahead log " + path.getFileName() + " ends in a torn record at byte "
+                        + validEnd + "; dropping the tail and any later segments.");
+                try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    ch.truncate(validEnd);
+                    ch.force(true);
+                }
+                for (int j = i + 1; j < segments.size(); j++) {
+                    Files.deleteIfExists(path(segments.get(j)));
+                }
+                break;
+            }
+        }
+        lastLsn = Math.max(lsn, afterLsn);
+        durableLsn = lastLsn;
+
+        synchronized (writeLock) {
+            List<Long> remaining = segments();
+            long current = remaining.isEmpty() || remaining.get(remaining.size() - 1) <= afterLsn
+                    ? lastLsn + 1
+                    : remaining.get(remaining.size() - 1);
+            channel = openSegment(current);
+        }
+        if (policy == FsyncPolicy.INTERVAL) {
+            intervalSyncer = new Thread(this::syncPeriodically, "wal-interval-sync");
+            intervalSyncer.setDaemon(true);
+            intervalSyncer.start();
+        }
+    }
+
+    // Writes one record and runs `apply` while still holding the log, so whatever it changes in
+    // memory is ordered exactly like the log. Returns the record's LSN; pass it to awaitDurable.
+    public long append(byte[] payload, Runnable apply) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+        long requested = System.nanoTime();
+        synchronized (writeLock) {
+            long acquired = System.nanoTime();
+            lockWait.observe(acquired - requested);
+            try {
+                if (closed) {
+                    throw new ClosedChannelException();
+                }
+                checkHealthy();
+                long end = channel.size();
+                try {
+                    while (frame.hasRemaining()) {
+                        channel.write(frame);
+                    }
+                } catch (IOException e) {
+                    cutBack(end, e);
+                    throw fail(e);
+                }
+                long lsn = ++lastLsn;
+                recordsSinceRotate++;
+                if (apply != null) {
+                    apply.run();
+                }
+                if (policy == FsyncPolicy.ALWAYS) {
+                    long start = System.nanoTime();
+                    try {
+                        channel.force(false);
+                    } catch (IOException e) {
+                        // Already applied in memory; whether the record is on disk is unknown
+                        throw fail(e);
+                    }
+                    fsyncTime.observeSince(start);
+                    durableLsn = lsn;
+                    fsyncCount++;
+                }
+                return lsn;
+            } finally {
+                lockHold.observeSince(acquired);
+            }
+        }
+    }
+
+    // Under GROUP, blocks until the record is on disk. The first waiter to find the log behind
+    // fsyncs everything written so far; those queued behind it usually find their record covered.
+    public void awaitDurable(long lsn) throws IOException {
+        if (policy != FsyncPolicy.GROUP || durableLsn >= lsn) {
+            return;
+        }
+        sync(lsn);
+    }
+
+    // Starts a new segment and runs `underLock` with no append in between, so it sees state that
+    // matches exactly the records up to the returned LSN. Checkpoints use this to cut the log.
+    public long rotate(Runnable underLock) throws IOException {
+        synchronized (writeLock) {
+            channel.force(false);
+            durableLsn = lastLsn;
+            channel.close();
+            channel = openSegment(lastLsn + 1);
+            recordsSinceRotate = 0;
+            underLock.run();
+            return lastLsn;
+        }
+    }
+
+    // Deletes segments whose records are all at or below lsn, i.e. covered by a checkpoint.
+    public void deleteSegmentsThrough(long lsn) throws IOException {
+        List<Long> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (segments.get(i + 1) <= lsn + 1) {
+                Files.deleteIfExists(path(segments.get(i)));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (channel != null) {
+                channel.force(false);
+                durableLsn = lastLsn;
+                channel.close();
+            }
+        }
+        if (intervalSyncer != null) {
+            intervalSyncer.interrupt();
+        }
+    }
+
+    private void checkHealthy() throws IOException {
+        IOException cause = failure;
+        if (cause != null) {
+            throw new IOException("Write-ahead log failed earlier and takes no more records: " + cause.getMessage(), cause);
+        }
+    }
+
+    // Removes what a failed write left of its frame, so the log on disk ends at the last whole
+    // record. If even that fails, recovery still stops at the torn frame.
+    private void cutBack(long end, IOException cause) {
+        try {
+            channel.truncate(end);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private IOException fail(IOException cause) {
+        if (failure == null) {
+            failure = cause;
+            System.err.println("Write-ahead log failed, refusing further appends: " + cause.getMessage());
+        }
+        return cause;
+    }
+
+    private void sync(long lsn) throws IOException {
+        synchronized (syncLock) {
+            if (durableLsn >= lsn) {
+                return;
+            }
+            long target;
+            FileChannel ch;
+            synchronized (writeLock) {
+                target = lastLsn;
+                ch = channel;
+            }
+            long start = System.nanoTime();
+            try {
+                ch.force(false);
+                fsyncTime.observeSince(start);
+            } catch (ClosedChannelException e) {
+                // Rotated or closed meanwhile, which forces the old segment itself
+                if (durableLsn < target) {
+                    throw e;
+                }
+                return;
+            } catch (IOException e) {
+                // The records may or may not be on disk, and the ones after them would follow
+                // whatever the failure left behind
+                throw fail(e);
+            }
+            durableLsn = Math.max(durableLsn, target);
+            fsyncCount++;
+        }
+    }
+
+    private void syncPeriodically() {
+        while (!closed) {
+            try {
+                Thread.sleep(intervalMillis);
+                if (durableLsn < lastLsn) {
+                    sync(lastLsn);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Write-ahead log fsync failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Null at a clean end of file or at the first record that is torn or fails its checksum.
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int expectedCrc = in.readInt();
+            if (length < 0 || length > MAX_RECORD) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == expectedCrc ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private FileChannel openSegment(long firstLsn) throws IOException {
+        FileChannel ch = FileChannel.open(path(firstLsn),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        syncDirectory(dir);
+        return ch;
+    }
+
+    private Path path(long firstLsn) {
+        return dir.resolve(PREFIX + String.format("%020d", firstLsn) + SUFFIX);
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> firsts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> firsts.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        firsts.sort(null);
+        return firsts;
+    }
+
+    // Makes a file creation or rename in dir durable. Not every platform allows it; those that
+    // do not make it durable some other way.
+    static void syncDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    @Test
+    void rejectsLimitsThatCannotRefill() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("t", 20, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("t", 20, -1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("t", 20, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("t", 20, Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("t", 0, 5));
+    }
+
+    @Test
+    void rejectsMalformedProperty() {
+        System.setProperty("ratelimit.malformed-test", "20");
+        try {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> RateLimiter.fromSystemProperties("malformed-test", 10, 1));
+            assertTrue(e.getMessage().contains("ratelimit.malformed-test"));
+        } finally {
+            System.clearProperty("ratelimit.malformed-test");
+        }
+    }
+
+    @Test
+    void takesTokensUntilTheBucketIsEmpty() {
+        try (RateLimiter limiter = new RateLimiter("t", 2, 0.001)) {
+            assertEquals(1, limiter.tryAcquire("a"), 0.01);
+            assertEquals(0, limiter.tryAcquire("a"), 0.01);
+            assertTrue(limiter.tryAcquire("a") < 0);
+            assertEquals(1, limiter.tryAcquire("b"), 0.01);
+            assertEquals(2, limiter.getBuckets());
+        }
+    }
+
+    @Test
+    void closeDropsTheBuckets() {
+        RateLimiter limiter = new RateLimiter("t", 2, 1);
+        limiter.tryAcquire("a");
+        limiter.close();
+        assertEquals(0, limiter.getBuckets());
+    }
+}
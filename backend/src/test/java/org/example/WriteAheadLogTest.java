@@ -0,0 +1,139 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Recovery of logs that end, or break off in the middle, in a bad frame. Records are one UTF
+// string each; a recovered record reads back as "<lsn>:<string>".
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversEveryRecordAcrossSegments() throws IOException {
+        try (WriteAheadLog log = open(new ArrayList<>())) {
+            append(log, "a");
+            log.rotate(() -> {});
+            append(log, "b");
+            append(log, "c");
+        }
+        List<String> seen = new ArrayList<>();
+        open(seen).close();
+        assertEquals(List.of("1:a", "2:b", "3:c"), seen);
+    }
+
+    @Test
+    void tornMiddleRecordEndsTheLogAndLaterAppendsFollowTheLastWholeRecord() throws IOException {
+        try (WriteAheadLog log = open(new ArrayList<>())) {
+            append(log, "a");
+            append(log, "b");
+            append(log, "c");
+        }
+        // One byte of b's payload flipped: b fails its checksum, and c after it is cut off with it
+        Path segment = onlySegment();
+        int frame = 8 + record("a").length;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(frame + 8 + 2);
+            int b = file.read();
+            file.seek(frame + 8 + 2);
+            file.write(b ^ 0xff);
+        }
+
+        List<String> seen = new ArrayList<>();
+        try (WriteAheadLog log = open(seen)) {
+            assertEquals(List.of("1:a"), seen);
+            assertEquals(frame, Files.size(segment));
+            assertEquals(2, append(log, "d"));
+        }
+        seen.clear();
+        open(seen).close();
+        assertEquals(List.of("1:a", "2:d"), seen);
+    }
+
+    @Test
+    void tornMiddleSegmentDropsTheSegmentsAfterIt() throws IOException {
+        try (WriteAheadLog log = open(new ArrayList<>())) {
+            append(log, "a");
+            log.rotate(() -> {});
+            append(log, "b");
+            log.rotate(() -> {});
+            append(log, "c");
+        }
+        List<Path> segments = segments();
+        assertEquals(3, segments.size());
+        // The second segment holds half of b's frame
+        try (FileChannel ch = FileChannel.open(segments.get(1), StandardOpenOption.WRITE)) {
+            ch.truncate(8 + record("b").length / 2);
+        }
+
+        List<String> seen = new ArrayList<>();
+        try (WriteAheadLog log = open(seen)) {
+            assertEquals(List.of("1:a"), seen);
+            assertEquals(2, segments().size());
+            assertEquals(2, append(log, "d"));
+        }
+        seen.clear();
+        open(seen).close();
+        assertEquals(List.of("1:a", "2:d"), seen);
+    }
+
+    @Test
+    void partialFrameAtTheTailIsCutOffBeforeTheNextAppend() throws IOException {
+        try (WriteAheadLog log = open(new ArrayList<>())) {
+            append(log, "a");
+        }
+        // What a write that failed partway would have left: a header promising more than follows
+        Files.write(onlySegment(), new byte[]{0, 0, 0, 10, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+
+        List<String> seen = new ArrayList<>();
+        try (WriteAheadLog log = open(seen)) {
+            assertEquals(List.of("1:a"), seen);
+            append(log, "b");
+        }
+        seen.clear();
+        open(seen).close();
+        assertEquals(List.of("1:a", "2:b"), seen);
+    }
+
+    private WriteAheadLog open(List<String> seen) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(dir, WriteAheadLog.FsyncPolicy.ALWAYS, 0);
+        log.recover(0, (lsn, record) -> seen.add(lsn + ":" + record.readUTF()));
+        return log;
+    }
+
+    private static long append(WriteAheadLog log, String value) throws IOException {
+        return log.append(record(value), null);
+    }
+
+    private static byte[] record(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(value);
+        return bytes.toByteArray();
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("wal-")).sorted().toList();
+        }
+    }
+}
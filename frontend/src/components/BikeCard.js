@@ -3,6 +3,7 @@ import {
   Card, CardContent, CardActions, Typography, Button, Box, Chip, CircularProgress, 
   CardMedia 
 } from '@mui/material';
+import { photoSrc } from '../services/apiService';
 
 const BikeCard = ({ bike, currentUser, onBook, onReturn }) => {
   const [loading, setLoading] = useState(false);
@@ -60,7 +61,7 @@ const BikeCard = ({ bike, currentUser, onBook, onReturn }) => {
       <CardMedia
         component="img"
         height="160"
-        image={bike.photoUrl || "https://i.imgur.com/g8fVwGr.png"} 
+        image={photoSrc(bike.photoUrl) || "https://i.imgur.com/g8fVwGr.png"} 
         alt={bike.model}
       />
 
@@ -52,15 +52,69 @@ const DashboardPage = () => {
     fetchBikes(); 
 
     const ws = new WebSocket(`ws://${serverIp}:8081`);
+    let lastSeq = -1;
+    let resyncing = false;
+
+    // Ask for everything after lastSeq: the server replies with the missed deltas or a full snapshot.
+    const resync = () => {
+      resyncing = true;
+      ws.send(JSON.stringify({ type: 'resync', lastSeq }));
+    };
+
+    // Deltas carry the bike's version, so one that a snapshot already covers is simply skipped.
+    const applyEvent = (event) => {
+      setBikes((current) => {
+        const existing = current.find((b) => b.id === event.bikeId);
+        switch (event.type) {
+          case 'bikeAdded':
+            if (existing && existing.version >= event.bike.version) return current;
+            return [...current.filter((b) => b.id !== event.bikeId), event.bike];
+          case 'bikeBooked':
+          case 'bikeReturned':
+            if (!existing || existing.version >= event.version) return current;
+            return current.map((b) => b.id === event.bikeId
+              ? { ...b, isAvailable: event.type === 'bikeReturned', bookedBy: event.bookedBy, version: event.version }
+              : b);
+          case 'bikeRemoved':
+            return current.filter((b) => b.id !== event.bikeId);
+          default:
+            return current;
+        }
+      });
+    };
 
     ws.onopen = () => {
       console.log('WebSocket connected');
+      resync();
     };
 
     ws.onmessage = (event) => {
-      const updatedBikes = JSON.parse(event.data);
-      setBikes(updatedBikes); 
-      console.log('Received WebSocket update, bike list refreshed.');
+      const message = JSON.parse(event.data);
+      if (message.type === 'snapshot') {
+        lastSeq = message.seq;
+        resyncing = false;
+        setBikes(message.bikes);
+        setLoading(false);
+        console.log('Received WebSocket snapshot, bike list refreshed.');
+        return;
+      }
+      // The server dropped frames to us while we were slow; lastSeq is the last one we were sent.
+      if (message.type === 'dropped') {
+        lastSeq = Math.min(lastSeq, message.lastSeq);
+        resync();
+        return;
+      }
+      // Deltas arrive batched: one frame holds every change from the server's last publish window.
+      for (const delta of message) {
+        if (delta.seq <= lastSeq) continue;
+        if (delta.seq !== lastSeq + 1) {
+          if (!resyncing) resync();
+          return;
+        }
+        lastSeq = delta.seq;
+        resyncing = false;
+        applyEvent(delta);
+      }
     };
 
     ws.onclose = () => {
@@ -17,4 +17,9 @@ apiClient.interceptors.request.use(
     return Promise.reject(error);
   }
 );
+
+// Photos stored by the backend come back as "/api/photos/<hash>" references.
+export const photoSrc = (photoUrl) =>
+  photoUrl && photoUrl.startsWith('/api/') ? `http://${serverIp}:8080${photoUrl}` : photoUrl;
+
 export default apiClient;
\ No newline at end of file